@@ -0,0 +1,103 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+/**
+ * Streaming compression of model artifacts in the LZ4 frame format, which
+ * decompresses faster than the artifacts can be read from disk or from the
+ * plugin jar. Compressed artifacts are detected by their magic bytes, so
+ * compressed and uncompressed artifacts can be mixed freely. Files written by
+ * the {@code lz4} command line tool are LZ4 frames as well.
+ */
+public final class ArtifactCompression {
+	// magic numbers of the frame formats, read little-endian
+	private static final int LZ4_FRAME_MAGIC = 0x184D2204;
+	private static final int ZSTD_FRAME_MAGIC = 0xFD2FB528;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private ArtifactCompression() {
+		throw new IllegalAccessError();
+	}
+
+	/**
+	 * Decompresses the given stream if it is an LZ4 frame.
+	 *
+	 * @param in
+	 *            the possibly compressed artifact
+	 * @return a stream of the uncompressed artifact
+	 * @throws IOException
+	 *             if reading the stream fails
+	 * @throws IllegalArgumentException
+	 *             if the artifact is compressed with zstd, which is not
+	 *             supported
+	 */
+	static InputStream decompress(InputStream in) throws IOException {
+		InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in, ArtifactCompression.BUFFER_SIZE);
+		buffered.mark(4);
+		int magic = 0;
+		int read = 0;
+		for (int b; (read < 4) && ((b = buffered.read()) >= 0); read++) {
+			magic |= b << (8 * read);
+		}
+		buffered.reset();
+		if (read < 4) {
+			return buffered;
+		}
+		if (magic == ArtifactCompression.LZ4_FRAME_MAGIC) {
+			return new LZ4FrameInputStream(buffered);
+		}
+		if (magic == ArtifactCompression.ZSTD_FRAME_MAGIC) {
+			throw new IllegalArgumentException("Artifact is compressed with zstd, only LZ4 frames are supported");
+		}
+		return buffered;
+	}
+
+	/**
+	 * Writes the given artifact as an LZ4 frame and closes the output stream.
+	 *
+	 * @param in
+	 *            the uncompressed artifact
+	 * @param out
+	 *            the stream to write the compressed artifact to
+	 * @throws IOException
+	 *             if reading or writing fails
+	 */
+	static void compress(InputStream in, OutputStream out) throws IOException {
+		try (LZ4FrameOutputStream lz4 = new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB)) {
+			in.transferTo(lz4);
+		}
+	}
+
+	/**
+	 * Compresses the given model artifacts, each to a file with the suffix
+	 * {@code .lz4} next to it.
+	 *
+	 * @param args
+	 *            the paths of the artifacts
+	 * @throws IOException
+	 *             if an artifact cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: ArtifactCompression <artifact> ...");
+			System.exit(1);
+		}
+		for (String arg : args) {
+			Path artifact = Paths.get(arg);
+			Path compressed = artifact.resolveSibling(artifact.getFileName() + ".lz4");
+			try (InputStream in = Files.newInputStream(artifact); OutputStream out = Files.newOutputStream(compressed)) {
+				ArtifactCompression.compress(in, out);
+			}
+			System.out.println(artifact + ": " + Files.size(artifact) + " -> " + Files.size(compressed) + " bytes");
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+/**
+ * Context features of all tokens of one utterance. The nearest content words
+ * (no stopword and no filter word) as well as the nearest NN* and VB* lemmas
+ * are computed up front in one forward and one backward sweep, so filling the
+ * context attributes (indices 3 to 18) of a noun's instance is O(1).
+ */
+final class ContextFeatures {
+	private final int size;
+	private final TokenTable tokens;
+
+	/**
+	 * Nearest index {@code <= i} that holds a content word, -1 if there is none.
+	 */
+	private final int[] prevContent;
+	/**
+	 * Nearest index {@code >= i} that holds a content word, {@link #size} if
+	 * there is none.
+	 */
+	private final int[] nextContent;
+
+	// nearest index < i (resp. > i) of a NN*/VB* that is no filter word, -1 if
+	// there is none
+	private final int[] leftNoun;
+	private final int[] leftVerb;
+	private final int[] rightNoun;
+	private final int[] rightVerb;
+
+	/**
+	 * Receives the context attribute values as the tokens they are taken from,
+	 * e.g. an {@link InstanceTemplate}.
+	 */
+	interface ValueSink {
+		void setLemma(int attributeIndex, int tokenIndex);
+
+		void setPos(int attributeIndex, int tokenIndex);
+	}
+
+	/**
+	 * Creates the context features of the given utterance.
+	 *
+	 * @param tokens
+	 *            the token table of the utterance
+	 */
+	ContextFeatures(TokenTable tokens) {
+		size = tokens.size();
+		this.tokens = tokens;
+		prevContent = new int[size];
+		nextContent = new int[size];
+		leftNoun = new int[size];
+		leftVerb = new int[size];
+		rightNoun = new int[size];
+		rightVerb = new int[size];
+
+		// forward sweep
+		int lastContent = -1;
+		int lastNoun = -1;
+		int lastVerb = -1;
+		for (int i = 0; i < size; i++) {
+			if (tokens.isContentWord(i)) {
+				lastContent = i;
+			}
+			prevContent[i] = lastContent;
+			leftNoun[i] = lastNoun;
+			leftVerb[i] = lastVerb;
+			if (isCandidate(i, TokenTable.POS_NOUN)) {
+				lastNoun = i;
+			} else if (isCandidate(i, TokenTable.POS_VERB)) {
+				lastVerb = i;
+			}
+		}
+		// backward sweep
+		int nearestContent = size;
+		int nearestNoun = -1;
+		int nearestVerb = -1;
+		for (int i = size - 1; i >= 0; i--) {
+			if (tokens.isContentWord(i)) {
+				nearestContent = i;
+			}
+			nextContent[i] = nearestContent;
+			rightNoun[i] = nearestNoun;
+			rightVerb[i] = nearestVerb;
+			if (isCandidate(i, TokenTable.POS_NOUN)) {
+				nearestNoun = i;
+			} else if (isCandidate(i, TokenTable.POS_VERB)) {
+				nearestVerb = i;
+			}
+		}
+	}
+
+	private boolean isCandidate(int index, byte posCode) {
+		return (tokens.posCode(index) == posCode) && !tokens.isFilterWord(index);
+	}
+
+	/**
+	 * Sets the three content words (and their POS) left of the given index.
+	 * Word-3 is stored at attribute index 3, word-1 at attribute index 7.
+	 *
+	 * @param index
+	 *            the index of the target word
+	 * @param instance
+	 *            the instance to fill
+	 */
+	void fillLeftWords(int index, ValueSink instance) {
+		int skipped = 0;
+		for (int i = 1; i <= 3; i++) {
+			int leftIndex = index - i;
+			if (leftIndex < 0) {
+				break;
+			}
+			int found = leftIndex;
+			// when word is a word, that should be filtered, skip it!
+			if (prevContent[leftIndex] != leftIndex) {
+				int from = leftIndex - skipped - 1;
+				found = (from >= 0) ? prevContent[from] : -1;
+				skipped = (found >= 0) ? leftIndex - found : leftIndex + 1;
+			}
+			if (found >= 0) {
+				int attributeIndex = 9 - (2 * i);
+				instance.setLemma(attributeIndex, found);
+				instance.setPos(attributeIndex + 1, found);
+			}
+		}
+	}
+
+	/**
+	 * Sets the three content words (and their POS) right of the given index.
+	 * Word+1 is stored at attribute index 9.
+	 *
+	 * @param index
+	 *            the index of the target word
+	 * @param instance
+	 *            the instance to fill
+	 */
+	void fillRightWords(int index, ValueSink instance) {
+		int skipped = 0;
+		for (int i = 1; i <= 3; i++) {
+			int rightIndex = index + i;
+			if (rightIndex >= size) {
+				break;
+			}
+			int found = rightIndex;
+			// when word is a word, that should be filtered, skip it!
+			if (nextContent[rightIndex] != rightIndex) {
+				int from = rightIndex + skipped + 1;
+				found = (from < size) ? nextContent[from] : size;
+				skipped = (found < size) ? found - rightIndex : size - rightIndex;
+			}
+			if (found < size) {
+				int attributeIndex = 7 + (2 * i);
+				instance.setLemma(attributeIndex, found);
+				instance.setPos(attributeIndex + 1, found);
+			}
+		}
+	}
+
+	/**
+	 * Sets the nearest NN* (index 15) and VB* (index 16) left of the given index.
+	 *
+	 * @param index
+	 *            the index of the target word
+	 * @param instance
+	 *            the instance to fill
+	 */
+	void fillLeftNounAndVerb(int index, ValueSink instance) {
+		ContextFeatures.setNearest(instance, 15, leftNoun[index]);
+		ContextFeatures.setNearest(instance, 16, leftVerb[index]);
+	}
+
+	/**
+	 * Sets the nearest NN* (index 17) and VB* (index 18) right of the given
+	 * index.
+	 *
+	 * @param index
+	 *            the index of the target word
+	 * @param instance
+	 *            the instance to fill
+	 */
+	void fillRightNounAndVerb(int index, ValueSink instance) {
+		ContextFeatures.setNearest(instance, 17, rightNoun[index]);
+		ContextFeatures.setNearest(instance, 18, rightVerb[index]);
+	}
+
+	private static void setNearest(ValueSink instance, int attrIndex, int tokenIndex) {
+		if (tokenIndex >= 0) {
+			instance.setLemma(attrIndex, tokenIndex);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.List;
+import java.util.Optional;
+
+import edu.kit.ipd.parse.luna.graph.Pair;
+
+/**
+ * Result of the disambiguation of one noun: the best sense and, if requested,
+ * the top-x senses with their probabilities.
+ */
+final class Disambiguation {
+	private final String sense;
+	private final List<Pair<String, Double>> topX;
+
+	/**
+	 * @param sense
+	 *            the best sense
+	 * @param topX
+	 *            the top-x senses with their probabilities, {@code null} if they
+	 *            shall not be stored
+	 */
+	Disambiguation(String sense, List<Pair<String, Double>> topX) {
+		this.sense = sense;
+		this.topX = topX;
+	}
+
+	String getSense() {
+		return sense;
+	}
+
+	Optional<List<Pair<String, Double>>> getTopX() {
+		return Optional.ofNullable(topX);
+	}
+
+	@Override
+	public String toString() {
+		return "Disambiguation [sense=" + sense + ", topX=" + topX + "]";
+	}
+}
@@ -0,0 +1,156 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of disambiguations, keyed by the 64-bit fingerprint of a
+ * noun's lemma and context attributes (see {@link NounClassifier}). The cache
+ * has one slot per entry; a fingerprint can be stored in the {@value #WAYS}
+ * slots following its hash. Once these are full, an insertion evicts one of
+ * them with a second chance as in CLOCK: a slot read since it was last passed
+ * over is skipped once, so frequent nouns stay cached. Lookups and insertions
+ * do not lock, and fingerprints are not boxed.
+ */
+final class DisambiguationCache {
+	/**
+	 * Number of slots a fingerprint can be stored in.
+	 */
+	private static final int WAYS = 8;
+
+	private final int capacity;
+	private final int ways;
+	private final AtomicReferenceArray<Slot> slots;
+	// 1 if the slot was read since it was last passed over for eviction
+	private final AtomicIntegerArray referenced;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private static final class Slot {
+		private final long fingerprint;
+		private final Disambiguation disambiguation;
+
+		private Slot(long fingerprint, Disambiguation disambiguation) {
+			this.fingerprint = fingerprint;
+			this.disambiguation = disambiguation;
+		}
+	}
+
+	/**
+	 * @param capacity
+	 *            the maximum number of cached disambiguations, positive
+	 */
+	DisambiguationCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		ways = Math.min(DisambiguationCache.WAYS, capacity);
+		slots = new AtomicReferenceArray<>(capacity);
+		referenced = new AtomicIntegerArray(capacity);
+	}
+
+	private int first(long fingerprint) {
+		return Math.floorMod(Long.hashCode(fingerprint), capacity);
+	}
+
+	private int slot(int first, int way) {
+		int slot = first + way;
+		return (slot < capacity) ? slot : slot - capacity;
+	}
+
+	/**
+	 * @param fingerprint
+	 *            the fingerprint of the noun
+	 * @return the cached disambiguation, {@code null} if there is none
+	 */
+	Disambiguation get(long fingerprint) {
+		int first = first(fingerprint);
+		for (int way = 0; way < ways; way++) {
+			int index = slot(first, way);
+			Slot slot = slots.get(index);
+			if ((slot != null) && (slot.fingerprint == fingerprint)) {
+				if (referenced.get(index) == 0) {
+					referenced.lazySet(index, 1);
+				}
+				hits.increment();
+				return slot.disambiguation;
+			}
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Caches a disambiguation. Concurrent insertions of the same fingerprint
+	 * may both be stored until one of them is evicted; they are equal, as the
+	 * fingerprint determines the disambiguation.
+	 *
+	 * @param fingerprint
+	 *            the fingerprint of the noun
+	 * @param disambiguation
+	 *            the disambiguation of the noun
+	 */
+	void put(long fingerprint, Disambiguation disambiguation) {
+		Slot inserted = new Slot(fingerprint, disambiguation);
+		int first = first(fingerprint);
+		// replace the fingerprint or take a free slot
+		for (int way = 0; way < ways; way++) {
+			int index = slot(first, way);
+			Slot slot = slots.get(index);
+			if (((slot == null) || (slot.fingerprint == fingerprint)) && slots.compareAndSet(index, slot, inserted)) {
+				return;
+			}
+		}
+		// evict, starting at a slot the upper bits of the fingerprint pick
+		int hand = (int) ((fingerprint >>> 32) % ways);
+		for (int step = 0; step < 2 * ways; step++) {
+			int index = slot(first, (hand + step) % ways);
+			if (referenced.getAndSet(index, 0) == 0) {
+				Slot slot = slots.get(index);
+				if (slots.compareAndSet(index, slot, inserted)) {
+					return;
+				}
+			}
+		}
+		// all slots read meanwhile, do not cache
+	}
+
+	/**
+	 * Removes all entries, e.g. after the model changed. The hit and miss
+	 * counters are kept.
+	 */
+	void clear() {
+		for (int index = 0; index < capacity; index++) {
+			slots.set(index, null);
+			referenced.set(index, 0);
+		}
+	}
+
+	/**
+	 * @return the number of cached disambiguations, counted slot by slot
+	 */
+	int size() {
+		int size = 0;
+		for (int index = 0; index < capacity; index++) {
+			if (slots.get(index) != null) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	long getHits() {
+		return hits.sum();
+	}
+
+	long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "DisambiguationCache [size=" + size() + ", capacity=" + capacity + ", hits=" + hits + ", misses=" + misses + "]";
+	}
+}
@@ -0,0 +1,41 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.InputStream;
+
+import org.kohsuke.MetaInfServices;
+
+import edu.kit.ipd.pronat.wiki_wsd.classifier.SerializationHelper;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+/**
+ * Loads the model with the efficient deserializers of the
+ * {@link SerializationHelper}. This is the default loader.
+ */
+@MetaInfServices(ModelLoader.class)
+public final class EfficientModelLoader implements ModelLoader {
+	static final String NAME = "efficient";
+
+	@Override
+	public String getName() {
+		return EfficientModelLoader.NAME;
+	}
+
+	@Override
+	public Classifier loadClassifier(InputStream in) {
+		return SerializationHelper.deserializeEfficientNaiveBayesClassifier(in)
+				.orElseThrow(() -> new IllegalArgumentException("Could not deserialize classifier"));
+	}
+
+	@Override
+	public Filter loadFilter(InputStream in) {
+		return SerializationHelper.deserializeFilter(in).orElseThrow(() -> new IllegalArgumentException("Could not deserialize filter"));
+	}
+
+	@Override
+	public Instances loadHeader(InputStream in) {
+		return SerializationHelper.deserializeInstances(in)
+				.orElseThrow(() -> new IllegalArgumentException("Could not deserialize instances header"));
+	}
+}
@@ -0,0 +1,65 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Disambiguates nouns without classification where the {@link SenseIndex}
+ * decides: a lemma with a single candidate sense gets that sense, an out of
+ * vocabulary lemma gets the configured fallback sense (if any). As there is no
+ * classification, such a disambiguation has no top-x senses. Counts how many
+ * nouns were short-circuited. Thread-safe.
+ */
+final class FastPath {
+	/**
+	 * Sense of out of vocabulary nouns, {@code null} to classify them.
+	 */
+	private final String oovFallback;
+	private final LongAdder nouns = new LongAdder();
+	private final LongAdder shortCircuited = new LongAdder();
+
+	FastPath(String oovFallback) {
+		this.oovFallback = oovFallback;
+	}
+
+	/**
+	 * @param index
+	 *            the sense index of the model
+	 * @param lemma
+	 *            the lemma of the noun as passed to the classifier service
+	 * @return the disambiguation, {@code null} if the noun has to be classified
+	 */
+	Disambiguation resolve(SenseIndex index, String lemma) {
+		nouns.increment();
+		String sense = index.singleSense(lemma);
+		if ((sense == null) && (oovFallback != null) && (index.candidateCount(lemma) == 0)) {
+			sense = oovFallback;
+		}
+		if (sense == null) {
+			return null;
+		}
+		shortCircuited.increment();
+		return new Disambiguation(sense, null);
+	}
+
+	/**
+	 * @return the disambiguation of a classified noun whose lemma turned out to
+	 *         be out of vocabulary, {@code null} if such nouns are classified
+	 */
+	Disambiguation outOfVocabulary() {
+		return (oovFallback == null) ? null : new Disambiguation(oovFallback, null);
+	}
+
+	/**
+	 * @return the number of nouns checked
+	 */
+	long getNouns() {
+		return nouns.sum();
+	}
+
+	/**
+	 * @return the number of nouns disambiguated without classification
+	 */
+	long getShortCircuited() {
+		return shortCircuited.sum();
+	}
+}
@@ -0,0 +1,96 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.Arrays;
+
+/**
+ * 64-bit fingerprint of the lemma, POS and context attributes of a noun, the
+ * key of the {@link DisambiguationCache}. It is computed from the terms, not
+ * from value indices, so fingerprints are comparable between the
+ * {@link NounClassifier}s of different threads. The 64-bit hashes of the
+ * terms are computed at most once per token and utterance. Not thread-safe.
+ */
+final class FeatureFingerprint implements ContextFeatures.ValueSink {
+	private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+	// hash of a token not hashed yet; a real hash equal to it only costs a rehash
+	private static final long NOT_HASHED = 0;
+
+	private TokenTable tokens;
+	private long[] lemmaHashes = new long[0];
+	private long[] posHashes = new long[0];
+	private long fingerprint;
+
+	/**
+	 * Computes the fingerprint of the given noun.
+	 *
+	 * @param tokens
+	 *            the tokens of the utterance
+	 * @param features
+	 *            the context features of the utterance
+	 * @param indexFirst
+	 *            the index of the (first word of the) noun
+	 * @param indexSecond
+	 *            the index of the last word of the noun
+	 * @return the fingerprint
+	 */
+	long of(TokenTable tokens, ContextFeatures features, int indexFirst, int indexSecond) {
+		if (tokens != this.tokens) {
+			this.tokens = tokens;
+			if (lemmaHashes.length < tokens.size()) {
+				lemmaHashes = new long[tokens.size()];
+				posHashes = new long[tokens.size()];
+			} else {
+				Arrays.fill(lemmaHashes, FeatureFingerprint.NOT_HASHED);
+				Arrays.fill(posHashes, FeatureFingerprint.NOT_HASHED);
+			}
+		}
+		fingerprint = FeatureFingerprint.FNV_OFFSET;
+		setLemma(1, indexFirst);
+		if (indexFirst != indexSecond) {
+			setLemma(1, indexSecond);
+		}
+		setPos(2, indexSecond);
+		features.fillLeftWords(indexFirst, this);
+		features.fillRightWords(indexSecond, this);
+		features.fillLeftNounAndVerb(indexFirst, this);
+		features.fillRightNounAndVerb(indexSecond, this);
+		return FeatureFingerprint.finish(fingerprint);
+	}
+
+	@Override
+	public void setLemma(int attributeIndex, int tokenIndex) {
+		if (lemmaHashes[tokenIndex] == FeatureFingerprint.NOT_HASHED) {
+			lemmaHashes[tokenIndex] = FeatureFingerprint.hash(tokens.lemma(tokenIndex));
+		}
+		mix(attributeIndex, lemmaHashes[tokenIndex]);
+	}
+
+	@Override
+	public void setPos(int attributeIndex, int tokenIndex) {
+		if (posHashes[tokenIndex] == FeatureFingerprint.NOT_HASHED) {
+			posHashes[tokenIndex] = FeatureFingerprint.hash(tokens.pos(tokenIndex));
+		}
+		mix(attributeIndex, posHashes[tokenIndex]);
+	}
+
+	private void mix(int attributeIndex, long termHash) {
+		fingerprint = (fingerprint ^ attributeIndex) * FeatureFingerprint.FNV_PRIME;
+		fingerprint = (fingerprint ^ termHash) * FeatureFingerprint.FNV_PRIME;
+	}
+
+	// 64-bit FNV-1a over the chars of the term
+	private static long hash(String term) {
+		long hash = FeatureFingerprint.FNV_OFFSET;
+		for (int i = 0; i < term.length(); i++) {
+			hash = (hash ^ term.charAt(i)) * FeatureFingerprint.FNV_PRIME;
+		}
+		return FeatureFingerprint.finish(hash);
+	}
+
+	// final avalanche of SplitMix64
+	private static long finish(long hash) {
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+}
@@ -0,0 +1,125 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.Arrays;
+
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Reusable classification instance of one {@link NounClassifier}. The values
+ * are written straight into one scratch array that is reset between nouns,
+ * instead of going through {@link Instance#setValue(int, String)}, which
+ * copies the whole value array on every call.
+ * <p>
+ * Lemmas and POS tags of the tokens are coded with the
+ * {@link ModelVocabulary} of the header once per utterance (see
+ * {@link #encode(TokenTable)}), so the context attributes of every noun are
+ * filled with pre-resolved value indices. A template must only be used by one
+ * thread at a time.
+ */
+final class InstanceTemplate implements ContextFeatures.ValueSink {
+	// term id of a token not coded yet
+	private static final int NOT_ENCODED = Integer.MIN_VALUE;
+
+	private final Instances header;
+	private final ModelVocabulary vocabulary;
+	private final double weight;
+	private final double[] values;
+
+	private TokenTable tokens;
+	private int[] lemmaIds = new int[0];
+	private int[] posIds = new int[0];
+
+	/**
+	 * Creates a template for the given header.
+	 *
+	 * @param header
+	 *            the header of the instances
+	 * @param weight
+	 *            the weight of the instances
+	 */
+	InstanceTemplate(Instances header, double weight) {
+		this.header = header;
+		this.weight = weight;
+		vocabulary = new ModelVocabulary(header);
+		values = new double[header.numAttributes()];
+		reset();
+	}
+
+	/**
+	 * Uses the given tokens for {@link #setLemma(int, int)} and
+	 * {@link #setPos(int, int)}. The tokens are coded on first use, so every
+	 * token of an utterance is looked up at most once.
+	 *
+	 * @param tokens
+	 *            the tokens of the current utterance
+	 */
+	void encode(TokenTable tokens) {
+		if (tokens == this.tokens) {
+			return;
+		}
+		this.tokens = tokens;
+		if (lemmaIds.length < tokens.size()) {
+			lemmaIds = new int[tokens.size()];
+			posIds = new int[tokens.size()];
+		}
+		Arrays.fill(lemmaIds, InstanceTemplate.NOT_ENCODED);
+		Arrays.fill(posIds, InstanceTemplate.NOT_ENCODED);
+	}
+
+	/**
+	 * Sets all values to missing.
+	 */
+	void reset() {
+		Arrays.fill(values, Utils.missingValue());
+	}
+
+	@Override
+	public void setLemma(int attributeIndex, int tokenIndex) {
+		if (lemmaIds[tokenIndex] == InstanceTemplate.NOT_ENCODED) {
+			lemmaIds[tokenIndex] = vocabulary.termId(tokens.lemma(tokenIndex));
+		}
+		setValueIndex(attributeIndex, vocabulary.valueIndex(attributeIndex, lemmaIds[tokenIndex]));
+	}
+
+	@Override
+	public void setPos(int attributeIndex, int tokenIndex) {
+		if (posIds[tokenIndex] == InstanceTemplate.NOT_ENCODED) {
+			posIds[tokenIndex] = vocabulary.termId(tokens.pos(tokenIndex));
+		}
+		setValueIndex(attributeIndex, vocabulary.valueIndex(attributeIndex, posIds[tokenIndex]));
+	}
+
+	/**
+	 * Sets the value of a nominal or string attribute to a term that is no
+	 * single token, e.g. the lemma of a compound noun. Terms unknown to a
+	 * nominal attribute become missing values.
+	 *
+	 * @param attributeIndex
+	 *            the attribute index
+	 * @param term
+	 *            the term
+	 */
+	void setValue(int attributeIndex, String term) {
+		setValueIndex(attributeIndex, vocabulary.valueIndex(attributeIndex, vocabulary.termId(term)));
+	}
+
+	private void setValueIndex(int attributeIndex, int valueIndex) {
+		values[attributeIndex] = (valueIndex == ModelVocabulary.UNKNOWN) ? Utils.missingValue() : valueIndex;
+	}
+
+	/**
+	 * Creates an instance over the current values. The instance shares the
+	 * values with the template (no copy), so it is only valid until the next
+	 * {@link #reset()}.
+	 *
+	 * @return the instance
+	 */
+	Instance instance() {
+		Instance instance = new DenseInstance(weight, values);
+		instance.setDataset(header);
+		return instance;
+	}
+}
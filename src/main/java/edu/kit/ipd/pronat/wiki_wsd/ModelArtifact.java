@@ -0,0 +1,32 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+/**
+ * The artifacts a wiki WSD model consists of.
+ */
+enum ModelArtifact {
+	CLASSIFIER("CLASSIFIER", "/EfficientNaiveBayes.classifier"), //
+	FILTER("FILTER", "/EfficientNaiveBayes.filter"), //
+	HEADER("INSTANCESHEADER", "/EfficientNaiveBayes.instanceheader");
+
+	private final String configKey;
+	private final String defaultResource;
+
+	ModelArtifact(String configKey, String defaultResource) {
+		this.configKey = configKey;
+		this.defaultResource = defaultResource;
+	}
+
+	/**
+	 * @return the key of the artifact's path in the configuration
+	 */
+	String getConfigKey() {
+		return configKey;
+	}
+
+	/**
+	 * @return the classpath resource that is used if no path is configured
+	 */
+	String getDefaultResource() {
+		return defaultResource;
+	}
+}
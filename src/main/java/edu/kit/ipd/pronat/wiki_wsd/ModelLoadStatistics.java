@@ -0,0 +1,105 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What loading a model cost per {@link ModelArtifact}: the bytes read (still
+ * compressed, if the artifact is compressed), the wall time and, if measured,
+ * the heap retained by the artifact. As the artifacts may be loaded
+ * concurrently, the wall time of the whole load is recorded separately.
+ */
+final class ModelLoadStatistics {
+	/**
+	 * Value of the retained heap and the wall time if they were not measured.
+	 */
+	static final long NOT_MEASURED = -1;
+
+	private final String loader;
+	// guarded by this
+	private final Map<ModelArtifact, long[]> artifacts = new EnumMap<>(ModelArtifact.class);
+	private volatile long wallNanos = ModelLoadStatistics.NOT_MEASURED;
+
+	ModelLoadStatistics(String loader) {
+		this.loader = loader;
+	}
+
+	synchronized void record(ModelArtifact artifact, long bytesRead, long nanos, long retainedHeapBytes) {
+		artifacts.put(artifact, new long[] { bytesRead, nanos, retainedHeapBytes });
+	}
+
+	/**
+	 * @return the name of the {@link ModelLoader} that loaded the model
+	 */
+	String getLoader() {
+		return loader;
+	}
+
+	long getBytesRead(ModelArtifact artifact) {
+		return get(artifact, 0);
+	}
+
+	long getNanos(ModelArtifact artifact) {
+		return get(artifact, 1);
+	}
+
+	/**
+	 * @return the heap retained by the loaded artifact in bytes, or
+	 *         {@link #NOT_MEASURED}
+	 */
+	long getRetainedHeapBytes(ModelArtifact artifact) {
+		return get(artifact, 2);
+	}
+
+	void setWallNanos(long wallNanos) {
+		this.wallNanos = wallNanos;
+	}
+
+	/**
+	 * @return the wall time of loading all artifacts in nanoseconds, or
+	 *         {@link #NOT_MEASURED}
+	 */
+	long getWallNanos() {
+		return wallNanos;
+	}
+
+	/**
+	 * @return the sum of the wall times of the artifacts in nanoseconds, i.e.
+	 *         the time loading them one after another would take
+	 */
+	synchronized long getTotalNanos() {
+		long total = 0;
+		for (long[] values : artifacts.values()) {
+			total += values[1];
+		}
+		return total;
+	}
+
+	private synchronized long get(ModelArtifact artifact, int index) {
+		long[] values = artifacts.get(artifact);
+		if (values == null) {
+			throw new IllegalArgumentException("No statistics for " + artifact);
+		}
+		return values[index];
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder builder = new StringBuilder("ModelLoadStatistics [loader=").append(loader);
+		for (Map.Entry<ModelArtifact, long[]> entry : artifacts.entrySet()) {
+			long[] values = entry.getValue();
+			builder.append(", ").append(entry.getKey()).append("=[bytes=").append(values[0]).append(", ms=")
+					.append(TimeUnit.NANOSECONDS.toMillis(values[1]));
+			if (values[2] != ModelLoadStatistics.NOT_MEASURED) {
+				builder.append(", heap=").append(values[2]);
+			}
+			builder.append(']');
+		}
+		builder.append(", totalMs=").append(TimeUnit.NANOSECONDS.toMillis(getTotalNanos()));
+		if (wallNanos != ModelLoadStatistics.NOT_MEASURED) {
+			builder.append(", wallMs=").append(TimeUnit.NANOSECONDS.toMillis(wallNanos));
+		}
+		return builder.append(']').toString();
+	}
+}
@@ -0,0 +1,115 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+/**
+ * Deserializes the artifacts of a model. Implementations are discovered with
+ * the {@link ServiceLoader} (register them with
+ * {@code @MetaInfServices(ModelLoader.class)}) and selected by their
+ * {@link #getName() name} with the {@value #CONFIG_KEY} configuration key. The
+ * built-in loaders are available without discovery, e.g. if the agent runs as
+ * a plugin whose services the context class loader does not see.
+ */
+public interface ModelLoader {
+
+	/**
+	 * Configuration key selecting the loader.
+	 */
+	String CONFIG_KEY = "MODEL_LOADER";
+
+	/**
+	 * Name of the loader used if none is configured.
+	 */
+	String DEFAULT_NAME = EfficientModelLoader.NAME;
+
+	/**
+	 * @return the name the loader is configured with
+	 */
+	String getName();
+
+	/**
+	 * Deserializes the classifier.
+	 *
+	 * @param in
+	 *            the serialized classifier
+	 * @return the classifier
+	 * @throws IllegalArgumentException
+	 *             if the classifier cannot be deserialized
+	 */
+	Classifier loadClassifier(InputStream in);
+
+	/**
+	 * Deserializes the filter.
+	 *
+	 * @param in
+	 *            the serialized filter
+	 * @return the filter
+	 * @throws IllegalArgumentException
+	 *             if the filter cannot be deserialized
+	 */
+	Filter loadFilter(InputStream in);
+
+	/**
+	 * Deserializes the instances header.
+	 *
+	 * @param in
+	 *            the serialized instances header
+	 * @return the instances header
+	 * @throws IllegalArgumentException
+	 *             if the header cannot be deserialized
+	 */
+	Instances loadHeader(InputStream in);
+
+	/**
+	 * @return the built-in loaders and all loaders on the classpath of this
+	 *         interface
+	 */
+	static List<ModelLoader> all() {
+		Map<String, ModelLoader> loaders = new LinkedHashMap<>();
+		for (ModelLoader loader : ModelLoader.builtIn()) {
+			loaders.put(loader.getName(), loader);
+		}
+		// the class loader of the plugin, not the context class loader
+		ServiceLoader.load(ModelLoader.class, ModelLoader.class.getClassLoader())
+				.forEach(loader -> loaders.putIfAbsent(loader.getName(), loader));
+		return new ArrayList<>(loaders.values());
+	}
+
+	private static List<ModelLoader> builtIn() {
+		return List.of(new EfficientModelLoader(), new NativeModelLoader());
+	}
+
+	/**
+	 * Finds the loader with the given name.
+	 *
+	 * @param name
+	 *            the name of the loader
+	 * @return the loader
+	 * @throws IllegalArgumentException
+	 *             if there is no loader with this name
+	 */
+	static ModelLoader forName(String name) {
+		for (ModelLoader loader : ModelLoader.builtIn()) {
+			if (loader.getName().equals(name)) {
+				return loader;
+			}
+		}
+		List<String> names = new ArrayList<>();
+		for (ModelLoader loader : ModelLoader.all()) {
+			if (loader.getName().equals(name)) {
+				return loader;
+			}
+			names.add(loader.getName());
+		}
+		throw new IllegalArgumentException("Unknown model loader " + name + ", available: " + names);
+	}
+}
@@ -0,0 +1,47 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a model with every {@link ModelLoader} on the classpath and prints what
+ * loading cost per artifact, to choose the fastest loader for a machine. Each
+ * loader is measured once loading the artifacts one after another (with the
+ * retained heap) and once loading them concurrently as the agent does.
+ * <p>
+ * The model is configured with the keys of the agent configuration, e.g.
+ * {@code CLASSIFIER=... FILTER=... INSTANCESHEADER=...}. Without any, the
+ * default model is loaded from the classpath.
+ */
+public final class ModelLoaderBenchmark {
+
+	private ModelLoaderBenchmark() {
+		throw new IllegalAccessError();
+	}
+
+	public static void main(String[] args) {
+		Properties props = new Properties();
+		int runs = 3;
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (separator < 1) {
+				System.err.println("Usage: ModelLoaderBenchmark [RUNS=<n>] [<config key>=<value> ...]");
+				System.exit(1);
+			}
+			props.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+		}
+		runs = Integer.parseInt(props.getProperty("RUNS", String.valueOf(runs)));
+
+		ModelSource source = ModelSource.fromConfiguration(props);
+		for (ModelLoader loader : ModelLoader.all()) {
+			long best = Long.MAX_VALUE;
+			for (int run = 1; run <= runs; run++) {
+				System.out.println("Run " + run + " sequential: " + source.withLoader(loader).load(true).getLoadStatistics());
+				ModelLoadStatistics statistics = source.withLoader(loader).load().getLoadStatistics();
+				best = Math.min(best, statistics.getWallNanos());
+				System.out.println("Run " + run + " concurrent: " + statistics);
+			}
+			System.out.println(loader.getName() + ": best cold start of " + runs + " runs " + TimeUnit.NANOSECONDS.toMillis(best) + " ms");
+		}
+	}
+}
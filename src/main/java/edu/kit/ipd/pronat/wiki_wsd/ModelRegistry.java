@@ -0,0 +1,308 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JVM-wide registry of loaded models. All agents that use the same
+ * {@link ModelSource} share one loaded {@link WsdModel}. The registry counts
+ * the references to each model and drops the model when the last
+ * {@link Lease} is closed. A model is loaded either on the thread acquiring it
+ * or in the background, see {@link #acquire(ModelSource, boolean)}.
+ * <p>
+ * While at least one lease {@link Lease#watch(long) watches} the files of a
+ * model, the model is reloaded once they changed. The reloaded model replaces
+ * the current one as a new {@link VersionedModel version} only after it is
+ * loaded completely; a failed reload keeps the current model. A successful
+ * reload also replaces a model that could not be loaded initially. Only
+ * watching leases switch to a reloaded model; the other leases keep the model
+ * they acquired, so an agent without hot reload never sees the model change.
+ */
+final class ModelRegistry {
+	private static final Logger logger = LoggerFactory.getLogger(ModelRegistry.class);
+
+	private static final Map<ModelSource, Entry> entries = new HashMap<>();
+
+	private ModelRegistry() {
+		throw new IllegalAccessError();
+	}
+
+	/**
+	 * Acquires the model of the given source and loads it if no other agent
+	 * holds it yet. The caller has to close the returned lease when it does not
+	 * need the model anymore.
+	 *
+	 * @param source
+	 *            the model source
+	 * @param async
+	 *            whether to return immediately and load the model on a background
+	 *            thread
+	 * @return the lease of the model
+	 */
+	static Lease acquire(ModelSource source, boolean async) {
+		Entry entry;
+		CompletableFuture<VersionedModel> model;
+		boolean startLoading = false;
+		synchronized (ModelRegistry.entries) {
+			entry = ModelRegistry.entries.computeIfAbsent(source, Entry::new);
+			entry.references++;
+			// (re)start loading if nobody did yet or the last attempt failed
+			if ((entry.model == null) || entry.model.isCompletedExceptionally()) {
+				entry.model = new CompletableFuture<>();
+				startLoading = true;
+			}
+			model = entry.model;
+		}
+		Lease lease = new Lease(entry, model);
+		if (startLoading) {
+			if (async) {
+				Thread loader = new Thread(() -> entry.load(model), "WordSenseDisambiguation-model-loader");
+				loader.setDaemon(true);
+				loader.start();
+			} else {
+				entry.load(model);
+			}
+		}
+		if (!async) {
+			try {
+				lease.getModel();
+			} catch (RuntimeException e) {
+				lease.close();
+				throw e;
+			}
+		}
+		return lease;
+	}
+
+	private static void release(Lease lease) {
+		Entry entry = lease.entry;
+		synchronized (ModelRegistry.entries) {
+			if (lease.watching) {
+				entry.unwatch();
+			}
+			entry.references--;
+			if (entry.references == 0) {
+				ModelRegistry.entries.remove(entry.source);
+				ModelRegistry.logger.info("Released model of {}", entry.source);
+			}
+		}
+	}
+
+	private static VersionedModel loaded(CompletableFuture<VersionedModel> model) {
+		if ((model == null) || !model.isDone() || model.isCompletedExceptionally()) {
+			return null;
+		}
+		return model.join();
+	}
+
+	/**
+	 * @return the number of models currently held by the registry
+	 */
+	static int size() {
+		synchronized (ModelRegistry.entries) {
+			return ModelRegistry.entries.size();
+		}
+	}
+
+	/**
+	 * A loaded model and its version. Every load of a source, the initial one and
+	 * each reload, takes the next version when it starts, so a higher version
+	 * was read from files at least as new. Failed loads leave gaps.
+	 */
+	static final class VersionedModel {
+		private final WsdModel model;
+		private final long version;
+
+		private VersionedModel(WsdModel model, long version) {
+			this.model = model;
+			this.version = version;
+		}
+
+		WsdModel getModel() {
+			return model;
+		}
+
+		long getVersion() {
+			return version;
+		}
+	}
+
+	private static final class Entry {
+		private final ModelSource source;
+		// guarded by ModelRegistry.entries
+		private int references;
+		private CompletableFuture<VersionedModel> model;
+		private ModelWatcher watcher;
+		private int watchingLeases;
+		private volatile long lastReloadMillis = -1;
+		private final AtomicLong versions = new AtomicLong();
+
+		private Entry(ModelSource source) {
+			this.source = source;
+		}
+
+		// guarded by ModelRegistry.entries
+		private void watch(long delay) {
+			watchingLeases++;
+			if (watchingLeases > 1) {
+				return;
+			}
+			Set<Path> files = source.getFiles();
+			if (files.isEmpty()) {
+				ModelRegistry.logger.warn("Cannot watch the default model of {}", source);
+				return;
+			}
+			try {
+				watcher = new ModelWatcher(files, delay, this::reload);
+			} catch (IOException e) {
+				ModelRegistry.logger.warn("Cannot watch the files of " + source, e);
+			}
+		}
+
+		// guarded by ModelRegistry.entries
+		private void unwatch() {
+			watchingLeases--;
+			if ((watchingLeases == 0) && (watcher != null)) {
+				watcher.close();
+				watcher = null;
+			}
+		}
+
+		private void load(CompletableFuture<VersionedModel> future) {
+			ModelRegistry.logger.info("Loading model of {}", source);
+			long version = versions.incrementAndGet();
+			long start = System.nanoTime();
+			try {
+				future.complete(new VersionedModel(source.load(), version));
+				ModelRegistry.logger.info("Loaded model of {} in {} ms", source, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			} catch (RuntimeException | Error e) {
+				ModelRegistry.logger.error("Could not load model of " + source, e);
+				future.completeExceptionally(e);
+			}
+		}
+
+		private void reload() {
+			ModelRegistry.logger.info("Reloading model of {}", source);
+			// taken before loading, so a slower initial load cannot get a higher version
+			long version = versions.incrementAndGet();
+			long start = System.nanoTime();
+			WsdModel loaded;
+			try {
+				loaded = source.load();
+			} catch (RuntimeException | Error e) {
+				ModelRegistry.logger.error("Could not reload model of " + source + ", keeping the current model", e);
+				return;
+			}
+			synchronized (ModelRegistry.entries) {
+				// replaces the current model even if it is still loading or failed to load
+				model = CompletableFuture.completedFuture(new VersionedModel(loaded, version));
+			}
+			lastReloadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			ModelRegistry.logger.info("Reloaded model of {} as version {} in {} ms", source, version, lastReloadMillis);
+		}
+	}
+
+	/**
+	 * A reference to a shared model. Closing the lease releases the reference.
+	 */
+	static final class Lease implements AutoCloseable {
+		private final Entry entry;
+		// guarded by ModelRegistry.entries
+		private CompletableFuture<VersionedModel> model;
+		private boolean watching;
+		private boolean closed;
+
+		private Lease(Entry entry, CompletableFuture<VersionedModel> model) {
+			this.entry = entry;
+			this.model = model;
+		}
+
+		/**
+		 * @return the future of the version of the shared model the lease uses,
+		 *         completes when the model is loaded. This is the current version
+		 *         if the lease watches the files, otherwise the version the lease
+		 *         acquired.
+		 */
+		CompletableFuture<VersionedModel> getModelFuture() {
+			synchronized (ModelRegistry.entries) {
+				if (watching || model.isCompletedExceptionally()) {
+					// keep the model that replaced a failed one
+					model = entry.model;
+				}
+				return model;
+			}
+		}
+
+		/**
+		 * Waits until the shared model is loaded.
+		 *
+		 * @return the current version of the shared model
+		 */
+		VersionedModel getModel() {
+			try {
+				return getModelFuture().join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * @return the current version of the shared model, {@code null} if it is
+		 *         still loading or could not be loaded
+		 */
+		VersionedModel getLoadedModel() {
+			return ModelRegistry.loaded(getModelFuture());
+		}
+
+		/**
+		 * @return how long the last reload of the model took in milliseconds, -1 if
+		 *         it was not reloaded yet
+		 */
+		long getLastReloadMillis() {
+			return entry.lastReloadMillis;
+		}
+
+		/**
+		 * Reloads the model whenever its files change, until the lease is closed,
+		 * and lets the lease switch to reloaded models. The files are watched
+		 * once for all leases of the model, with the delay of the first one.
+		 * Models loaded from the classpath are not watched.
+		 *
+		 * @param delay
+		 *            the time in milliseconds without further changes before the
+		 *            model is reloaded
+		 */
+		void watch(long delay) {
+			synchronized (ModelRegistry.entries) {
+				if (watching || closed) {
+					return;
+				}
+				watching = true;
+				entry.watch(delay);
+			}
+		}
+
+		@Override
+		public void close() {
+			synchronized (ModelRegistry.entries) {
+				if (!closed) {
+					closed = true;
+					ModelRegistry.release(this);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+/**
+ * Where a model is loaded from: one file per {@link ModelArtifact}, where a
+ * missing path stands for the artifact's default classpath resource. Paths are
+ * resolved to absolute paths, so two sources are equal if they load the same
+ * files with the same {@link ModelLoader}.
+ */
+final class ModelSource {
+	private static final Logger logger = LoggerFactory.getLogger(ModelSource.class);
+
+	private final Map<ModelArtifact, Path> paths;
+	private final ModelLoader loader;
+
+	private ModelSource(Map<ModelArtifact, Path> paths, ModelLoader loader) {
+		this.paths = paths;
+		this.loader = loader;
+	}
+
+	/**
+	 * Creates the model source from the configuration of the agent.
+	 *
+	 * @param props
+	 *            the configuration
+	 * @return the configured model source
+	 */
+	static ModelSource fromConfiguration(Properties props) {
+		Map<ModelArtifact, Path> paths = new EnumMap<>(ModelArtifact.class);
+		for (ModelArtifact artifact : ModelArtifact.values()) {
+			Path path = ModelSource.resolve(props.getProperty(artifact.getConfigKey()));
+			if ((path != null) && !Files.exists(path)) {
+				throw new IllegalArgumentException("File does not exist: " + path);
+			}
+			paths.put(artifact, path);
+		}
+		String loaderName = props.getProperty(ModelLoader.CONFIG_KEY, "").trim();
+		ModelLoader loader = ModelLoader.forName(loaderName.isEmpty() ? ModelLoader.DEFAULT_NAME : loaderName);
+		return new ModelSource(paths, loader);
+	}
+
+	/**
+	 * @param loader
+	 *            the loader to use
+	 * @return a source of the same files that loads them with the given loader
+	 */
+	ModelSource withLoader(ModelLoader loader) {
+		return new ModelSource(paths, loader);
+	}
+
+	private static Path resolve(String path) {
+		if ((path == null) || path.isBlank()) {
+			return null;
+		}
+		return Paths.get(path.trim()).toAbsolutePath().normalize();
+	}
+
+	/**
+	 * Loads the model. The artifacts are deserialized concurrently and may be
+	 * compressed (see {@link ArtifactCompression}).
+	 *
+	 * @return the loaded model
+	 */
+	WsdModel load() {
+		return load(false);
+	}
+
+	/**
+	 * Loads the model and records its {@link WsdModel#getLoadStatistics()
+	 * statistics}.
+	 *
+	 * @param measureHeap
+	 *            whether to measure the heap retained by each artifact. This runs
+	 *            the garbage collector before and after each artifact and is meant
+	 *            for benchmarks only. The artifacts are then deserialized one after
+	 *            another.
+	 * @return the loaded model
+	 */
+	WsdModel load(boolean measureHeap) {
+		try (InputStream classifier = open(ModelArtifact.CLASSIFIER);
+				InputStream filter = open(ModelArtifact.FILTER);
+				InputStream header = open(ModelArtifact.HEADER)) {
+			return load(classifier, filter, header, measureHeap);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the files the model is loaded from, without the artifacts loaded
+	 *         from the classpath
+	 */
+	Set<Path> getFiles() {
+		Set<Path> files = new HashSet<>();
+		for (Path path : paths.values()) {
+			if (path != null) {
+				files.add(path);
+			}
+		}
+		return files;
+	}
+
+	private InputStream open(ModelArtifact artifact) throws IOException {
+		Path path = paths.get(artifact);
+		if (path == null) {
+			return ModelSource.class.getResourceAsStream(artifact.getDefaultResource());
+		}
+		return Files.newInputStream(path);
+	}
+
+	private WsdModel load(InputStream classifierStream, InputStream filterStream, InputStream headerStream, boolean measureHeap) {
+		ModelLoadStatistics statistics = new ModelLoadStatistics(loader.getName());
+		long start = System.nanoTime();
+		Classifier classifier;
+		Filter filter;
+		Instances header;
+		if (measureHeap) {
+			classifier = ModelSource.loadArtifact(ModelArtifact.CLASSIFIER, classifierStream, loader::loadClassifier, statistics, true);
+			filter = ModelSource.loadArtifact(ModelArtifact.FILTER, filterStream, loader::loadFilter, statistics, true);
+			header = ModelSource.loadArtifact(ModelArtifact.HEADER, headerStream, loader::loadHeader, statistics, true);
+		} else {
+			AtomicInteger threadCount = new AtomicInteger();
+			ExecutorService executor = Executors.newFixedThreadPool(ModelArtifact.values().length, runnable -> {
+				Thread thread = new Thread(runnable, "WordSenseDisambiguation-artifact-loader-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				CompletableFuture<Classifier> classifierFuture = CompletableFuture.supplyAsync(
+						() -> ModelSource.loadArtifact(ModelArtifact.CLASSIFIER, classifierStream, loader::loadClassifier, statistics, false),
+						executor);
+				CompletableFuture<Filter> filterFuture = CompletableFuture.supplyAsync(
+						() -> ModelSource.loadArtifact(ModelArtifact.FILTER, filterStream, loader::loadFilter, statistics, false), executor);
+				CompletableFuture<Instances> headerFuture = CompletableFuture.supplyAsync(
+						() -> ModelSource.loadArtifact(ModelArtifact.HEADER, headerStream, loader::loadHeader, statistics, false), executor);
+				classifier = ModelSource.join(classifierFuture);
+				filter = ModelSource.join(filterFuture);
+				header = ModelSource.join(headerFuture);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		statistics.setWallNanos(System.nanoTime() - start);
+
+		long createStart = System.nanoTime();
+		WsdModel model = new WsdModel(classifier, filter, header, statistics);
+		ModelSource.logger.info("Created model in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createStart));
+		ModelSource.logger.info("{}", statistics);
+		return model;
+	}
+
+	private static <T> T join(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private static <T> T loadArtifact(ModelArtifact artifact, InputStream in, Function<InputStream, T> deserializer,
+			ModelLoadStatistics statistics, boolean measureHeap) {
+		if (in == null) {
+			throw new IllegalArgumentException("Missing " + artifact);
+		}
+		CountingInputStream counting = new CountingInputStream(in);
+		long heapBefore = measureHeap ? ModelSource.usedHeapAfterGc() : 0;
+		long start = System.nanoTime();
+		T loaded;
+		try {
+			loaded = deserializer.apply(ArtifactCompression.decompress(counting));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		long nanos = System.nanoTime() - start;
+		long retainedHeap = measureHeap ? ModelSource.usedHeapAfterGc() - heapBefore : ModelLoadStatistics.NOT_MEASURED;
+		statistics.record(artifact, counting.count, nanos, retainedHeap);
+		ModelSource.logger.info("Deserialized {} in {} ms", artifact, TimeUnit.NANOSECONDS.toMillis(nanos));
+		return loaded;
+	}
+
+	private static long usedHeapAfterGc() {
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(paths, loader.getName());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ModelSource)) {
+			return false;
+		}
+		ModelSource other = (ModelSource) obj;
+		return paths.equals(other.paths) && loader.getName().equals(other.loader.getName());
+	}
+
+	@Override
+	public String toString() {
+		// a null path denotes the default resource
+		return "ModelSource [paths=" + paths + ", loader=" + loader.getName() + "]";
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		private CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read >= 0) {
+				count++;
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+/**
+ * Integer coding of the lemma and POS values of an instances header. Every
+ * term (lemma or POS tag) gets one term id, and every attribute maps term ids
+ * to its value indices, so filling an instance needs no string lookup per
+ * attribute.
+ * <p>
+ * The values of nominal attributes are known when the vocabulary is built;
+ * terms no nominal attribute knows are unknown to them and become missing
+ * values. String attributes accept every term: a new term gets a term id and
+ * is added to the attribute the first time it is used there, like
+ * {@link weka.core.Instance#setValue(int, String)} does.
+ * <p>
+ * A vocabulary belongs to one header and must only be used by one thread at a
+ * time.
+ */
+final class ModelVocabulary {
+	/**
+	 * Term id and value index of unknown terms.
+	 */
+	static final int UNKNOWN = -1;
+	// value index of a term not yet added to a string attribute
+	private static final int UNRESOLVED = -2;
+
+	private final Instances header;
+	private final Map<String, Integer> termIds = new HashMap<>();
+	private final List<String> terms = new ArrayList<>();
+	/**
+	 * Value index of every term id per attribute, {@code null} for attributes
+	 * that are neither nominal nor string.
+	 */
+	private final int[][] valueIndices;
+	private final boolean[] stringAttributes;
+	private final boolean acceptsNewTerms;
+
+	/**
+	 * Builds the vocabulary of the given header.
+	 *
+	 * @param header
+	 *            the header
+	 */
+	ModelVocabulary(Instances header) {
+		this.header = header;
+		int numAttributes = header.numAttributes();
+		stringAttributes = new boolean[numAttributes];
+		boolean anyString = false;
+		for (int a = 0; a < numAttributes; a++) {
+			Attribute attribute = header.attribute(a);
+			if (attribute.isNominal()) {
+				for (int v = 0; v < attribute.numValues(); v++) {
+					addTerm(attribute.value(v));
+				}
+			} else if (attribute.isString()) {
+				stringAttributes[a] = true;
+				anyString = true;
+			}
+		}
+		acceptsNewTerms = anyString;
+
+		valueIndices = new int[numAttributes][];
+		for (int a = 0; a < numAttributes; a++) {
+			Attribute attribute = header.attribute(a);
+			if (attribute.isNominal()) {
+				int[] indices = new int[terms.size()];
+				Arrays.fill(indices, ModelVocabulary.UNKNOWN);
+				for (int v = 0; v < attribute.numValues(); v++) {
+					indices[termIds.get(attribute.value(v))] = v;
+				}
+				valueIndices[a] = indices;
+			} else if (stringAttributes[a]) {
+				int[] indices = new int[terms.size()];
+				Arrays.fill(indices, ModelVocabulary.UNRESOLVED);
+				valueIndices[a] = indices;
+			}
+		}
+	}
+
+	private int addTerm(String term) {
+		Integer id = termIds.get(term);
+		if (id == null) {
+			id = terms.size();
+			termIds.put(term, id);
+			terms.add(term);
+		}
+		return id;
+	}
+
+	/**
+	 * @param term
+	 *            a lemma or POS tag
+	 * @return the id of the term, {@link #UNKNOWN} if no attribute can hold it
+	 */
+	int termId(String term) {
+		if (acceptsNewTerms) {
+			return addTerm(term);
+		}
+		Integer id = termIds.get(term);
+		return (id == null) ? ModelVocabulary.UNKNOWN : id;
+	}
+
+	/**
+	 * @param attributeIndex
+	 *            the index of a nominal or string attribute
+	 * @param termId
+	 *            the id of a term
+	 * @return the value index of the term in the attribute, {@link #UNKNOWN} if
+	 *         the attribute does not know the term
+	 */
+	int valueIndex(int attributeIndex, int termId) {
+		int[] indices = valueIndices[attributeIndex];
+		if (indices == null) {
+			throw new IllegalArgumentException("Attribute neither nominal nor string!");
+		}
+		if (termId < 0) {
+			return ModelVocabulary.UNKNOWN;
+		}
+		if (termId >= indices.length) {
+			if (!stringAttributes[attributeIndex]) {
+				return ModelVocabulary.UNKNOWN;
+			}
+			int oldLength = indices.length;
+			indices = Arrays.copyOf(indices, Math.max(termId + 1, 2 * oldLength));
+			Arrays.fill(indices, oldLength, indices.length, ModelVocabulary.UNRESOLVED);
+			valueIndices[attributeIndex] = indices;
+		}
+		int valueIndex = indices[termId];
+		if (valueIndex == ModelVocabulary.UNRESOLVED) {
+			valueIndex = header.attribute(attributeIndex).addStringValue(terms.get(termId));
+			indices[termId] = valueIndex;
+		}
+		return valueIndex;
+	}
+
+	/**
+	 * @return the number of known terms
+	 */
+	int size() {
+		return terms.size();
+	}
+}
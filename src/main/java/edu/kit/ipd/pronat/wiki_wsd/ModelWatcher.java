@@ -0,0 +1,110 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the files of a model and runs a callback once they changed. As model
+ * files are large and written over some time, the callback runs only after no
+ * further change happened for a given delay.
+ */
+final class ModelWatcher implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(ModelWatcher.class);
+
+	private final Set<Path> files;
+	private final long delay;
+	private final Runnable onChange;
+	private final WatchService watchService;
+
+	/**
+	 * Starts watching the given files.
+	 *
+	 * @param files
+	 *            the absolute paths of the files to watch
+	 * @param delay
+	 *            the time in milliseconds without further changes before the
+	 *            callback runs
+	 * @param onChange
+	 *            the callback, runs on the watcher thread
+	 * @throws IOException
+	 *             if the directories of the files cannot be watched
+	 */
+	ModelWatcher(Set<Path> files, long delay, Runnable onChange) throws IOException {
+		this.files = files;
+		this.delay = delay;
+		this.onChange = onChange;
+		watchService = FileSystems.getDefault().newWatchService();
+		Set<Path> directories = new HashSet<>();
+		for (Path file : files) {
+			directories.add(file.getParent());
+		}
+		for (Path directory : directories) {
+			directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+		Thread thread = new Thread(this::watch, "WordSenseDisambiguation-model-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				if (!isChange(watchService.take())) {
+					continue;
+				}
+				// wait until the files are written completely
+				WatchKey key;
+				while ((key = watchService.poll(delay, TimeUnit.MILLISECONDS)) != null) {
+					isChange(key);
+				}
+				ModelWatcher.logger.info("Model files {} changed", files);
+				try {
+					onChange.run();
+				} catch (RuntimeException e) {
+					// keep watching, the next change may fix the files
+					ModelWatcher.logger.error("Could not handle the change of " + files, e);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ClosedWatchServiceException e) {
+			// closed, stop watching
+		}
+	}
+
+	private boolean isChange(WatchKey key) {
+		boolean change = false;
+		Path directory = (Path) key.watchable();
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				change = true;
+			} else if (files.contains(directory.resolve((Path) event.context()))) {
+				change = true;
+			}
+		}
+		key.reset();
+		return change;
+	}
+
+	@Override
+	public void close() {
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			ModelWatcher.logger.warn("Could not stop watching " + files, e);
+		}
+	}
+}
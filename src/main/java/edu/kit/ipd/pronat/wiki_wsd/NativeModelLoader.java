@@ -0,0 +1,41 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.InputStream;
+
+import org.kohsuke.MetaInfServices;
+
+import edu.kit.ipd.pronat.wiki_wsd.classifier.SerializationHelper;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+/**
+ * Loads the model with the native Java deserialization of the
+ * {@link SerializationHelper}.
+ */
+@MetaInfServices(ModelLoader.class)
+public final class NativeModelLoader implements ModelLoader {
+	static final String NAME = "native";
+
+	@Override
+	public String getName() {
+		return NativeModelLoader.NAME;
+	}
+
+	@Override
+	public Classifier loadClassifier(InputStream in) {
+		return SerializationHelper.deserializeEfficientNaiveBayesClassifierNative(in)
+				.orElseThrow(() -> new IllegalArgumentException("Could not deserialize classifier"));
+	}
+
+	@Override
+	public Filter loadFilter(InputStream in) {
+		return SerializationHelper.deserializeFilterNative(in).orElseThrow(() -> new IllegalArgumentException("Could not deserialize filter"));
+	}
+
+	@Override
+	public Instances loadHeader(InputStream in) {
+		return SerializationHelper.deserializeInstancesNative(in)
+				.orElseThrow(() -> new IllegalArgumentException("Could not deserialize instances header"));
+	}
+}
@@ -0,0 +1,201 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import edu.kit.ipd.parse.luna.graph.Pair;
+import edu.kit.ipd.pronat.wiki_wsd.classifier.Classification;
+import edu.kit.ipd.pronat.wiki_wsd.classifier.ClassifierService;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Builds the classification instance of a noun and classifies it. A noun
+ * classifier must only be used by one thread at a time, as it reuses one
+ * {@link InstanceTemplate} for all nouns.
+ */
+final class NounClassifier {
+	private final ClassifierService classifierService;
+
+	/**
+	 * Indicator to the maximum amount of classifications to be stored into the
+	 * node.
+	 */
+	private final int storeTopX;
+
+	private final InstanceTemplate template;
+
+	/**
+	 * Cache of disambiguations shared with the other noun classifiers of the
+	 * model, {@code null} if results are not cached.
+	 */
+	private final DisambiguationCache cache;
+	private final FeatureFingerprint fingerprint = new FeatureFingerprint();
+
+	/**
+	 * Fast path for monosemous and out of vocabulary nouns shared with the other
+	 * noun classifiers of the agent, {@code null} if every noun is classified.
+	 */
+	private final FastPath fastPath;
+	private final SenseIndex senseIndex;
+	/**
+	 * Number of senses of the model, the size of the classification that lists
+	 * all candidates of a lemma; 0 if unknown.
+	 */
+	private final int senseCount;
+
+	NounClassifier(ClassifierService classifierService, int storeTopX) {
+		this(classifierService, storeTopX, null, null, null);
+	}
+
+	NounClassifier(ClassifierService classifierService, int storeTopX, DisambiguationCache cache, FastPath fastPath, SenseIndex senseIndex) {
+		if ((fastPath != null) && (senseIndex == null)) {
+			throw new IllegalArgumentException("Fast path needs a sense index");
+		}
+		this.classifierService = classifierService;
+		this.storeTopX = storeTopX;
+		this.cache = cache;
+		this.fastPath = fastPath;
+		this.senseIndex = senseIndex;
+		Instances header = classifierService.getHeader().orElse(ClassifierService.getEmptyInstancesHeader());
+		header.attribute(1).setWeight(10d);
+		template = new InstanceTemplate(header, 2);
+		senseCount = (header.classIndex() >= 0) ? header.classAttribute().numValues() : 0;
+	}
+
+	Disambiguation disambiguateNoun(TokenTable tokens, ContextFeatures features, int index) {
+		return disambiguateCompoundNoun(tokens, features, index, index);
+	}
+
+	// does not actually disambiguate a compound noun properly...yet
+	Disambiguation disambiguateCompoundNoun(TokenTable tokens, ContextFeatures features, int indexFirst, int indexSecond) {
+		String lemma = NounClassifier.lemma(tokens, indexFirst, indexSecond);
+		if (fastPath != null) {
+			// a lemma with only one candidate sense needs no context
+			Disambiguation resolved = fastPath.resolve(senseIndex, lemma);
+			if (resolved != null) {
+				return resolved;
+			}
+		}
+		long key = 0;
+		if (cache != null) {
+			// same lemma in the same context, same result
+			key = fingerprint.of(tokens, features, indexFirst, indexSecond);
+			Disambiguation cached = cache.get(key);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		template.reset();
+		NounClassifier.fillInstance(template, tokens, features, indexFirst, indexSecond, lemma);
+
+		// disambiguate
+		Disambiguation disambiguation = classify(template.instance(), lemma);
+		if (cache != null) {
+			cache.put(key, disambiguation);
+		}
+		return disambiguation;
+	}
+
+	private static String lemma(TokenTable tokens, int indexFirst, int indexSecond) {
+		String lemma = tokens.lemma(indexFirst);
+		if (indexFirst != indexSecond) {
+			lemma += " " + tokens.lemma(indexSecond);
+		}
+		return lemma;
+	}
+
+	/**
+	 * Disambiguates the given nouns of an utterance one after another on the
+	 * reused instance template.
+	 *
+	 * @param tokens
+	 *            the token table of the utterance
+	 * @param features
+	 *            the context features of the utterance
+	 * @param indices
+	 *            the indices of the nouns to disambiguate
+	 * @return the disambiguations in the order of the given indices
+	 */
+	Disambiguation[] disambiguateNouns(TokenTable tokens, ContextFeatures features, List<Integer> indices) {
+		Disambiguation[] disambiguations = new Disambiguation[indices.size()];
+		for (int n = 0; n < disambiguations.length; n++) {
+			disambiguations[n] = disambiguateNoun(tokens, features, indices.get(n));
+		}
+		return disambiguations;
+	}
+
+	/**
+	 * Fills the instance with the target word and its context.
+	 */
+	private static void fillInstance(InstanceTemplate instance, TokenTable tokens, ContextFeatures features, int indexFirst, int indexSecond,
+			String lemma) {
+		instance.encode(tokens);
+		// fill instance ...
+		// ... with actual Word
+		if (indexFirst != indexSecond) {
+			instance.setValue(1, lemma);
+		} else {
+			instance.setLemma(1, indexFirst);
+		}
+		instance.setPos(2, indexSecond);
+		// ... with left and right three words
+		features.fillLeftWords(indexFirst, instance);
+		features.fillRightWords(indexSecond, instance);
+		// ... with left and right NN+VB
+		features.fillLeftNounAndVerb(indexFirst, instance);
+		features.fillRightNounAndVerb(indexSecond, instance);
+	}
+
+	/**
+	 * Classifies the instance once and derives both the best sense and (if
+	 * enabled) the top-x senses from that single classification.
+	 *
+	 * @param instance
+	 *            the instance
+	 * @param lemma
+	 *            the lemma
+	 * @return the disambiguation
+	 * @see #storeTopX
+	 */
+	private Disambiguation classify(Instance instance, String lemma) {
+		// the first noun of a lemma the header does not list gives its candidates
+		boolean recordCandidates = (fastPath != null) && (senseCount > 0) && !senseIndex.isKnown(lemma);
+		if ((storeTopX <= 0) && !recordCandidates) {
+			return new Disambiguation(classifierService.classifyInstanceWithLemma(instance, lemma).getClassificationString(), null);
+		}
+
+		List<Classification> raw = classifierService.classifyInstanceWithLemma(instance, lemma,
+				recordCandidates ? Math.max(storeTopX, senseCount) : storeTopX);
+		if (recordCandidates) {
+			senseIndex.record(lemma, raw.stream().map(Classification::getClassificationString).collect(Collectors.toList()));
+			Disambiguation outOfVocabulary = raw.isEmpty() ? fastPath.outOfVocabulary() : null;
+			if (outOfVocabulary != null) {
+				// like every further noun of the lemma
+				return outOfVocabulary;
+			}
+		}
+		// the best classification is part of the top-x, so there is no need to
+		// classify a second time
+		Optional<Classification> best = raw.stream().max(Comparator.comparingDouble(Classification::getProbability));
+		String sense = best.orElseGet(() -> classifierService.classifyInstanceWithLemma(instance, lemma)).getClassificationString();
+		if (storeTopX <= 0) {
+			return new Disambiguation(sense, null);
+		}
+
+		List<Pair<String, Double>> cls = raw.stream()
+				.sorted(Comparator.comparingDouble(Classification::getProbability).reversed())
+				.limit(storeTopX)
+				.map(c -> new Pair<>(c.getClassificationString(), c.getProbability()))
+				.collect(Collectors.toList());
+
+		return new Disambiguation(sense, cls);
+	}
+
+	@Override
+	public String toString() {
+		return "NounClassifier [classifierService=" + classifierService + ", storeTopX=" + storeTopX + "]";
+	}
+}
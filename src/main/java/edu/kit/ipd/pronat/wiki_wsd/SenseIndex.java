@@ -0,0 +1,132 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.ipd.pronat.wiki_wsd.classifier.Classification;
+import edu.kit.ipd.pronat.wiki_wsd.classifier.ClassifierService;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+/**
+ * The candidate senses of the lemmas of a model, as the
+ * {@link ClassifierService} narrows them down when it classifies an instance
+ * with a lemma. The sense names of a model do not tell which lemma they belong
+ * to (e.g. the lemma {@code fridge} has the sense {@code refrigerator}), so the
+ * candidates of a lemma are recorded from a complete classification with the
+ * lemma: for the lemmas the instances header lists when the index is
+ * {@link #build(ClassifierService) built}, for all other lemmas when their
+ * first noun is classified. Thread-safe.
+ */
+final class SenseIndex {
+	private static final Logger logger = LoggerFactory.getLogger(SenseIndex.class);
+
+	private final ConcurrentHashMap<String, Candidates> candidates = new ConcurrentHashMap<>();
+
+	private static final class Candidates {
+		private final int count;
+		// the sense if it is the only candidate, null otherwise
+		private final String single;
+
+		private Candidates(int count, String single) {
+			this.count = count;
+			this.single = single;
+		}
+	}
+
+	/**
+	 * Builds the index of a model from the values of the lemma attribute (index
+	 * 1) of its instances header. Each lemma is classified once with only the
+	 * lemma set, asking for all senses of the model, so the classifier returns
+	 * exactly the candidates of the lemma.
+	 *
+	 * @param classifierService
+	 *            a classifier service of the model, used only by this thread
+	 *            while the index is built
+	 * @return the index
+	 */
+	static SenseIndex build(ClassifierService classifierService) {
+		SenseIndex index = new SenseIndex();
+		Instances header = classifierService.getHeader().orElse(ClassifierService.getEmptyInstancesHeader());
+		if ((header.classIndex() < 0) || (header.numAttributes() < 2)) {
+			return index;
+		}
+		long start = System.nanoTime();
+		int senseCount = header.classAttribute().numValues();
+		// copy the lemmas, string attributes gain values while instances are classified
+		Attribute lemmaAttribute = header.attribute(1);
+		List<String> lemmas = new ArrayList<>(lemmaAttribute.numValues());
+		for (int v = 0; v < lemmaAttribute.numValues(); v++) {
+			lemmas.add(lemmaAttribute.value(v));
+		}
+		InstanceTemplate template = new InstanceTemplate(header, 2);
+		List<String> senses = new ArrayList<>();
+		for (String lemma : lemmas) {
+			template.reset();
+			template.setValue(1, lemma);
+			senses.clear();
+			for (Classification classification : classifierService.classifyInstanceWithLemma(template.instance(), lemma, senseCount)) {
+				senses.add(classification.getClassificationString());
+			}
+			index.record(lemma, senses);
+		}
+		SenseIndex.logger.info("Indexed the candidate senses of {} lemmas in {} ms", index.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return index;
+	}
+
+	/**
+	 * Records the candidate senses of a lemma.
+	 *
+	 * @param lemma
+	 *            the lemma as passed to the classifier service
+	 * @param senses
+	 *            all senses the classifier service returned for the lemma
+	 */
+	void record(String lemma, List<String> senses) {
+		candidates.putIfAbsent(lemma, new Candidates(senses.size(), (senses.size() == 1) ? senses.get(0) : null));
+	}
+
+	/**
+	 * @param lemma
+	 *            the lemma as passed to the classifier service
+	 * @return whether the candidates of the lemma are recorded
+	 */
+	boolean isKnown(String lemma) {
+		return candidates.containsKey(lemma);
+	}
+
+	/**
+	 * @param lemma
+	 *            the lemma as passed to the classifier service
+	 * @return the number of candidate senses of the lemma, 0 if it is out of
+	 *         vocabulary, -1 if its candidates are not recorded yet
+	 */
+	int candidateCount(String lemma) {
+		Candidates recorded = candidates.get(lemma);
+		return (recorded == null) ? -1 : recorded.count;
+	}
+
+	/**
+	 * @param lemma
+	 *            the lemma as passed to the classifier service
+	 * @return the only candidate sense of the lemma, {@code null} if it has none
+	 *         or more than one or its candidates are not recorded yet
+	 */
+	String singleSense(String lemma) {
+		Candidates recorded = candidates.get(lemma);
+		return (recorded == null) ? null : recorded.single;
+	}
+
+	/**
+	 * @return the number of lemmas with recorded candidates
+	 */
+	int size() {
+		return candidates.size();
+	}
+}
@@ -0,0 +1,82 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.ipd.parse.luna.data.MissingDataException;
+import edu.kit.ipd.parse.luna.graph.IArc;
+import edu.kit.ipd.parse.luna.graph.IArcType;
+import edu.kit.ipd.parse.luna.graph.INode;
+import edu.kit.ipd.parse.luna.graph.ParseGraph;
+
+/**
+ * Orders the token nodes of an utterance along the {@code relation} arcs with
+ * value {@code NEXT}, starting at the first utterance node.
+ * <p>
+ * The arc type is resolved once per walk. At each token the outgoing arcs are
+ * scanned by index, and the {@code value} attribute is only read on arcs of
+ * that type. The walk stops with an error after as many steps as the graph has
+ * tokens, so a cycle cannot loop forever.
+ */
+final class TokenOrder {
+	private static final Logger logger = LoggerFactory.getLogger(TokenOrder.class);
+
+	private static final String ARC_TYPE_NAME = "relation";
+	private static final String ARC_TYPE_VALUE = "NEXT";
+	private static final String TOKEN_NODE_TYPE = "token";
+
+	private TokenOrder() {
+		throw new IllegalAccessError();
+	}
+
+	/**
+	 * Returns the token nodes of the utterance in order.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @return the nodes in utterance order
+	 * @throws MissingDataException
+	 *             if the {@code NEXT} arcs form a cycle
+	 */
+	static List<INode> nodesInOrder(ParseGraph graph) throws MissingDataException {
+		INode first = graph.getFirstUtteranceNode();
+		if (first == null) {
+			return Collections.emptyList();
+		}
+		if (!graph.hasArcType(TokenOrder.ARC_TYPE_NAME)) {
+			return Collections.singletonList(first);
+		}
+		IArcType arcType = graph.getArcType(TokenOrder.ARC_TYPE_NAME);
+		// an acyclic chain visits every token at most once
+		int tokenCount = graph.hasNodeType(TokenOrder.TOKEN_NODE_TYPE)
+				? graph.getNodesOfType(graph.getNodeType(TokenOrder.TOKEN_NODE_TYPE)).size()
+				: graph.getNodes().size();
+		List<INode> order = new ArrayList<>(tokenCount);
+		for (INode node = first; node != null; node = TokenOrder.next(node, arcType)) {
+			if (order.size() >= tokenCount) {
+				TokenOrder.logger.error("NEXT arcs form a cycle, more than {} steps", tokenCount);
+				throw new MissingDataException("NEXT arcs form a cycle!");
+			}
+			order.add(node);
+		}
+		if (order.size() < tokenCount) {
+			TokenOrder.logger.warn("Broken NEXT chain: reached {} of {} tokens", order.size(), tokenCount);
+		}
+		return order;
+	}
+
+	private static INode next(INode node, IArcType arcType) {
+		List<? extends IArc> arcs = node.getOutgoingArcs();
+		for (int i = 0; i < arcs.size(); i++) {
+			IArc arc = arcs.get(i);
+			if (arcType.equals(arc.getType()) && TokenOrder.ARC_TYPE_VALUE.equals(arc.getAttributeValue("value"))) {
+				return arc.getTargetNode();
+			}
+		}
+		return null;
+	}
+}
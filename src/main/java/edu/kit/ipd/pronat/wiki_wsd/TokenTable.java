@@ -0,0 +1,127 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.BitSet;
+import java.util.List;
+
+import edu.kit.ipd.parse.luna.graph.INode;
+import edu.kit.ipd.pronat.wiki_wsd.classifier.ClassifierService;
+import weka.core.Stopwords;
+
+/**
+ * Columnar snapshot of the token nodes of one utterance. The node attributes
+ * are read exactly once per {@link WordSenseDisambiguation#exec()}; all feature
+ * extraction and named entity checks run against the parallel arrays. The
+ * stopword and filter word checks are done once per token as well.
+ */
+final class TokenTable {
+	static final byte POS_OTHER = 0;
+	static final byte POS_NOUN = 1;
+	static final byte POS_VERB = 2;
+
+	private final String[] lemmas;
+	private final String[] pos;
+	private final byte[] posCodes;
+	private final boolean[] namedEntities;
+	// tokens in ClassifierService.filterWords
+	private final BitSet filterWords;
+	// tokens that are no stopword and no filter word
+	private final BitSet contentWords;
+
+	/**
+	 * Creates a token table from already extracted columns.
+	 *
+	 * @param lemmas
+	 *            the lowercased lemmas in utterance order
+	 * @param pos
+	 *            the POS tags in utterance order
+	 * @param namedEntities
+	 *            whether the (noun) token at the index is a named entity
+	 */
+	TokenTable(String[] lemmas, String[] pos, boolean[] namedEntities) {
+		this.lemmas = lemmas;
+		this.pos = pos;
+		this.namedEntities = namedEntities;
+		posCodes = new byte[pos.length];
+		filterWords = new BitSet(lemmas.length);
+		contentWords = new BitSet(lemmas.length);
+		for (int i = 0; i < pos.length; i++) {
+			posCodes[i] = TokenTable.posCode(pos[i]);
+			if (ClassifierService.filterWords.contains(lemmas[i])) {
+				filterWords.set(i);
+			} else if (!Stopwords.isStopword(lemmas[i])) {
+				contentWords.set(i);
+			}
+		}
+	}
+
+	/**
+	 * Reads lemma, POS and NER of every node once.
+	 *
+	 * @param nodes
+	 *            the token nodes in utterance order
+	 * @return the token table of the utterance
+	 */
+	static TokenTable of(List<INode> nodes) {
+		int size = nodes.size();
+		String[] lemmas = new String[size];
+		String[] pos = new String[size];
+		boolean[] namedEntities = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			INode node = nodes.get(i);
+			lemmas[i] = node.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString().toLowerCase();
+			pos[i] = node.getAttributeValue(WordSenseDisambiguation.POS_ATTRIBUTE).toString();
+			// NER is only of interest (and only guaranteed) for nouns
+			namedEntities[i] = (TokenTable.posCode(pos[i]) == TokenTable.POS_NOUN) && WordSenseDisambiguation.nodeIsNamedEntity(node);
+		}
+		return new TokenTable(lemmas, pos, namedEntities);
+	}
+
+	static byte posCode(String pos) {
+		if (pos.startsWith("NN")) {
+			return TokenTable.POS_NOUN;
+		} else if (pos.startsWith("VB")) {
+			return TokenTable.POS_VERB;
+		}
+		return TokenTable.POS_OTHER;
+	}
+
+	int size() {
+		return lemmas.length;
+	}
+
+	String lemma(int index) {
+		return lemmas[index];
+	}
+
+	String pos(int index) {
+		return pos[index];
+	}
+
+	byte posCode(int index) {
+		return posCodes[index];
+	}
+
+	boolean isNoun(int index) {
+		return posCodes[index] == TokenTable.POS_NOUN;
+	}
+
+	boolean isNamedEntity(int index) {
+		return namedEntities[index];
+	}
+
+	/**
+	 * @return whether the lemma of the token is one of the filter words of the
+	 *         classifier
+	 */
+	boolean isFilterWord(int index) {
+		return filterWords.get(index);
+	}
+
+	/**
+	 * @return whether the lemma of the token is neither a stopword nor a filter
+	 *         word
+	 */
+	boolean isContentWord(int index) {
+		return contentWords.get(index);
+	}
+}
@@ -3,14 +3,20 @@
  */
 package edu.kit.ipd.pronat.wiki_wsd;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.lang.ref.Cleaner;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.kohsuke.MetaInfServices;
 import org.slf4j.Logger;
@@ -18,22 +24,11 @@ import org.slf4j.LoggerFactory;
 
 import edu.kit.ipd.parse.luna.agent.AbstractAgent;
 import edu.kit.ipd.parse.luna.data.MissingDataException;
-import edu.kit.ipd.parse.luna.graph.IArc;
-import edu.kit.ipd.parse.luna.graph.IArcType;
 import edu.kit.ipd.parse.luna.graph.INode;
 import edu.kit.ipd.parse.luna.graph.INodeType;
-import edu.kit.ipd.parse.luna.graph.Pair;
 import edu.kit.ipd.parse.luna.graph.ParseGraph;
 import edu.kit.ipd.parse.luna.tools.ConfigManager;
-import edu.kit.ipd.pronat.wiki_wsd.classifier.Classification;
 import edu.kit.ipd.pronat.wiki_wsd.classifier.ClassifierService;
-import edu.kit.ipd.pronat.wiki_wsd.classifier.SerializationHelper;
-import weka.classifiers.Classifier;
-import weka.core.DenseInstance;
-import weka.core.Instance;
-import weka.core.Instances;
-import weka.core.Stopwords;
-import weka.filters.Filter;
 
 /**
  * @author Sebastian Weigelt
@@ -41,12 +36,13 @@ import weka.filters.Filter;
  *
  */
 @MetaInfServices(AbstractAgent.class)
-public class WordSenseDisambiguation extends AbstractAgent {
+public class WordSenseDisambiguation extends AbstractAgent implements AutoCloseable {
 	private static final Logger logger = LoggerFactory.getLogger(WordSenseDisambiguation.class);
+	// Luna never closes agents, so unreachable agents release their model on its thread
+	private static final Cleaner cleaner = Cleaner.create();
 
-	private static final String NONE_VAL = "NONE";
-	private static final String LEMMA_ATTRIBUTE = "lemma";
-	private static final String POS_ATTRIBUTE = "pos";
+	static final String LEMMA_ATTRIBUTE = "lemma";
+	static final String POS_ATTRIBUTE = "pos";
 	private static final String NER_ATTRIBUTE = "ner";
 	private static final String ID = "WordSenseDisambiguation";
 
@@ -55,17 +51,106 @@ public class WordSenseDisambiguation extends AbstractAgent {
 	static final String WSD_ATTRIBUTE_NAME = "wsd";
 	static final String WSD_TOP_X_ATTRIBUTE_NAME = "wsd-top-x";
 
-	private static final String classifierPathDefault = "/EfficientNaiveBayes.classifier";
-	private static final String filterPathDefault = "/EfficientNaiveBayes.filter";
-	private static final String headerPathDefault = "/EfficientNaiveBayes.instanceheader";
-
 	/**
 	 * Indicator to the maximum amount of classifications to be stored into the
 	 * node.
 	 */
 	private int storeTopX;
 
-	private ClassifierService classifierService;
+	private ModelRegistry.Lease modelLease;
+	/**
+	 * The model version the agent currently disambiguates with, {@code null}
+	 * until the model is loaded. Replaced at the start of {@link #exec()} if the
+	 * model was reloaded meanwhile.
+	 */
+	private volatile ActiveModel activeModel;
+
+	/**
+	 * Executor for the parallel disambiguation of the nouns of an utterance,
+	 * {@code null} if the nouns are disambiguated sequentially.
+	 */
+	private ExecutorService executor;
+	private boolean parallel;
+	private int parallelThreads;
+
+	/**
+	 * Cache of the disambiguations of the active model, {@code null} if results
+	 * are not cached.
+	 */
+	private DisambiguationCache resultCache;
+
+	/**
+	 * Fast path for monosemous and out of vocabulary nouns, {@code null} if
+	 * every noun is classified.
+	 */
+	private FastPath fastPath;
+
+	/**
+	 * Completes when the model is loaded and the agent is ready to execute.
+	 * Replaced by a completed future if the model could not be loaded initially
+	 * but a later reload succeeded.
+	 */
+	private volatile CompletableFuture<Void> ready;
+	/**
+	 * Maximum time in milliseconds {@link #exec()} waits for the model, negative
+	 * to wait until it is loaded.
+	 */
+	private long execWaitTimeout;
+	private volatile boolean closed;
+	private Release release;
+	private Cleaner.Cleanable cleanable;
+
+	/**
+	 * The loading state of the model of an agent.
+	 */
+	public enum ModelState {
+		LOADING, READY, FAILED
+	}
+
+	/**
+	 * A model version together with the classifiers of the agent using it.
+	 */
+	private static final class ActiveModel {
+		private final WsdModel model;
+		private final long version;
+		private final NounClassifier nounClassifier;
+		/**
+		 * The classifier of each worker thread, {@code null} if the nouns are
+		 * disambiguated sequentially. Dropped with the model version, unlike
+		 * thread-local values of the long-lived workers.
+		 */
+		private final Map<Thread, NounClassifier> workerNounClassifiers;
+
+		private ActiveModel(WsdModel model, long version, NounClassifier nounClassifier,
+				Map<Thread, NounClassifier> workerNounClassifiers) {
+			this.model = model;
+			this.version = version;
+			this.nounClassifier = nounClassifier;
+			this.workerNounClassifiers = workerNounClassifiers;
+		}
+	}
+
+	/**
+	 * Releases the model and stops the workers of an agent, when it is closed or
+	 * when it became unreachable. Must not refer to the agent.
+	 */
+	private static final class Release implements Runnable {
+		private final ModelRegistry.Lease lease;
+		private volatile ExecutorService executor;
+
+		private Release(ModelRegistry.Lease lease) {
+			this.lease = lease;
+		}
+
+		@Override
+		public void run() {
+			ExecutorService workers = executor;
+			if (workers != null) {
+				workers.shutdownNow();
+			}
+			lease.close();
+		}
+	}
 
 	/*
 	 * (non-Javadoc)
@@ -74,55 +159,241 @@ public class WordSenseDisambiguation extends AbstractAgent {
 	 */
 	@Override
 	public void init() {
+		init(ConfigManager.getConfiguration(getClass()));
+	}
+
+	/**
+	 * Initializes the agent with the given configuration.
+	 *
+	 * @param props
+	 *            the configuration
+	 */
+	void init(Properties props) {
 		setId(WordSenseDisambiguation.ID);
-		Properties props = ConfigManager.getConfiguration(getClass());
 
 		// Set store Top-X (negative indicates no storage)
 		storeTopX = Integer.parseInt((String) props.getOrDefault("STORE_TOP_X", "-1"));
+		parallel = Boolean.parseBoolean((String) props.getOrDefault("PARALLEL", "false"));
+		parallelThreads = Integer.parseInt((String) props.getOrDefault("PARALLEL_THREADS", "0"));
+		boolean async = Boolean.parseBoolean((String) props.getOrDefault("INIT_ASYNC", "false"));
+		execWaitTimeout = Long.parseLong((String) props.getOrDefault("EXEC_WAIT_TIMEOUT", "-1"));
+		boolean hotReload = Boolean.parseBoolean((String) props.getOrDefault("HOT_RELOAD", "false"));
+		long hotReloadDelay = Long.parseLong((String) props.getOrDefault("HOT_RELOAD_DELAY", "2000"));
+		int resultCacheSize = Integer.parseInt((String) props.getOrDefault("RESULT_CACHE_SIZE", "10000"));
+		resultCache = (resultCacheSize > 0) ? new DisambiguationCache(resultCacheSize) : null;
+		boolean useFastPath = Boolean.parseBoolean((String) props.getOrDefault("FAST_PATH", "false"));
+		String oovFallback = ((String) props.getOrDefault("OOV_FALLBACK", "")).trim();
+		fastPath = useFastPath ? new FastPath(oovFallback.isEmpty() ? null : oovFallback) : null;
+
+		// load classifier and filter (shared with all agents using the same model)
+		long start = System.nanoTime();
+		modelLease = ModelRegistry.acquire(ModelSource.fromConfiguration(props), async);
+		release = new Release(modelLease);
+		cleanable = WordSenseDisambiguation.cleaner.register(this, release);
+		if (async) {
+			ready = modelLease.getModelFuture().thenAccept(loaded -> setUpModel(loaded, start));
+		} else {
+			setUpModel(modelLease.getModel(), start);
+			ready = CompletableFuture.completedFuture(null);
+		}
+		if (hotReload) {
+			modelLease.watch(hotReloadDelay);
+		}
+	}
 
-		// load classifier and filter
+	private void setUpModel(ModelRegistry.VersionedModel loaded, long start) {
+		if (closed) {
+			return;
+		}
+		if (parallel && (executor == null)) {
+			initParallel(parallelThreads);
+		}
+		activeModel = activate(loaded);
+		WordSenseDisambiguation.logger.info("Ready {} ms after init", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
 
-		Object loader = new Object() {
-		};
+	private ActiveModel activate(ModelRegistry.VersionedModel loaded) {
+		WsdModel model = loaded.getModel();
+		// every worker scores on its own copies of filter and header, created on first use
+		Map<Thread, NounClassifier> workerNounClassifiers = (executor == null) ? null : new ConcurrentHashMap<>();
+		return new ActiveModel(model, loaded.getVersion(), newNounClassifier(model), workerNounClassifiers);
+	}
 
-		String classifierPath = props.getProperty("CLASSIFIER");
-		InputStream classifier;
-		if ((classifierPath == null) || classifierPath.trim().isEmpty() || classifierPath.isBlank()) {
-			classifier = loader.getClass().getResourceAsStream(WordSenseDisambiguation.classifierPathDefault);
-		} else {
-			classifier = getStreamFromPath(classifierPath);
+	private NounClassifier newNounClassifier(WsdModel model) {
+		// the sense index is built when the first noun classifier of the model is set up
+		return new NounClassifier(newClassifierService(model), storeTopX, resultCache, fastPath,
+				(fastPath == null) ? null : model.getSenseIndex());
+	}
+
+	/**
+	 * @param model
+	 *            the model
+	 * @return a new classifier service of the model for one noun classifier
+	 */
+	ClassifierService newClassifierService(WsdModel model) {
+		return model.newClassifierService();
+	}
+
+	/**
+	 * Switches to the current version of the model if it was reloaded since the
+	 * last execution.
+	 *
+	 * @return the model to use for the next execution
+	 */
+	private ActiveModel currentModel() {
+		ActiveModel current = activeModel;
+		ModelRegistry.VersionedModel latest = modelLease.getLoadedModel();
+		if ((latest != null) && (latest.getVersion() != current.version)) {
+			WordSenseDisambiguation.logger.info("Switching from model version {} to {}", current.version, latest.getVersion());
+			if (resultCache != null) {
+				// cached results belong to the old model
+				resultCache.clear();
+			}
+			current = activate(latest);
+			activeModel = current;
 		}
+		return current;
+	}
 
-		String filterPath = props.getProperty("FILTER");
-		InputStream filter;
-		if ((filterPath == null) || filterPath.isEmpty() || filterPath.isBlank()) {
-			filter = loader.getClass().getResourceAsStream(WordSenseDisambiguation.filterPathDefault);
-		} else {
-			filter = getStreamFromPath(filterPath);
+	/**
+	 * @return the version of the model the agent disambiguates with, starting
+	 *         at 1 and increased by every reload, 0 if the model is not loaded
+	 *         yet
+	 */
+	public long getModelVersion() {
+		ActiveModel current = activeModel;
+		return (current == null) ? 0 : current.version;
+	}
+
+	/**
+	 * @return the number of nouns whose disambiguation was taken from the result
+	 *         cache, 0 if results are not cached
+	 */
+	public long getResultCacheHits() {
+		return (resultCache == null) ? 0 : resultCache.getHits();
+	}
+
+	/**
+	 * @return the number of nouns that were classified as their disambiguation
+	 *         was not cached, 0 if results are not cached
+	 */
+	public long getResultCacheMisses() {
+		return (resultCache == null) ? 0 : resultCache.getMisses();
+	}
+
+	/**
+	 * @return the number of nouns disambiguated by the fast path without
+	 *         classification, 0 if the fast path is disabled
+	 */
+	public long getShortCircuitedNouns() {
+		return (fastPath == null) ? 0 : fastPath.getShortCircuited();
+	}
+
+	/**
+	 * @return the fraction of nouns disambiguated by the fast path without
+	 *         classification, 0 if the fast path is disabled or no noun was
+	 *         disambiguated yet
+	 */
+	public double getShortCircuitRate() {
+		if ((fastPath == null) || (fastPath.getNouns() == 0)) {
+			return 0d;
 		}
+		return (double) fastPath.getShortCircuited() / fastPath.getNouns();
+	}
 
-		String headerPath = props.getProperty("INSTANCESHEADER");
-		InputStream header;
-		if ((headerPath == null) || headerPath.isEmpty() || headerPath.isBlank()) {
-			header = loader.getClass().getResourceAsStream(WordSenseDisambiguation.headerPathDefault);
-		} else {
-			header = getStreamFromPath(headerPath);
+	/**
+	 * @return how long the last reload of the model took in milliseconds, -1 if
+	 *         the model was not reloaded yet
+	 */
+	public long getLastReloadMillis() {
+		ModelRegistry.Lease lease = modelLease;
+		return (lease == null) ? -1 : lease.getLastReloadMillis();
+	}
+
+	/**
+	 * @return the loading state of the model
+	 */
+	public ModelState getModelState() {
+		CompletableFuture<Void> current = currentReady();
+		if ((current == null) || !current.isDone()) {
+			return ModelState.LOADING;
+		}
+		return current.isCompletedExceptionally() ? ModelState.FAILED : ModelState.READY;
+	}
+
+	/**
+	 * @return a future that completes when the model is loaded and the agent is
+	 *         ready to execute
+	 */
+	public CompletableFuture<Void> getReadyFuture() {
+		CompletableFuture<Void> current = currentReady();
+		if (current == null) {
+			throw new IllegalStateException("Agent is not initialized");
+		}
+		return current.copy();
+	}
+
+	/**
+	 * @return the readiness of the agent, after setting up the model of a
+	 *         successful reload if the initial load failed
+	 */
+	private CompletableFuture<Void> currentReady() {
+		CompletableFuture<Void> current = ready;
+		if ((current != null) && current.isCompletedExceptionally()) {
+			recoverModel();
+			current = ready;
 		}
+		return current;
+	}
 
-		load(classifier, filter, header);
+	private synchronized void recoverModel() {
+		ModelRegistry.Lease lease = modelLease;
+		if (!ready.isCompletedExceptionally() || (lease == null)) {
+			return;
+		}
+		ModelRegistry.VersionedModel loaded = lease.getLoadedModel();
+		if (loaded != null) {
+			WordSenseDisambiguation.logger.info("Model version {} loaded after the initial load failed", loaded.getVersion());
+			setUpModel(loaded, System.nanoTime());
+			ready = CompletableFuture.completedFuture(null);
+		}
 	}
 
-	private InputStream getStreamFromPath(String path) {
+	/**
+	 * Waits for the model at most {@link #execWaitTimeout} milliseconds.
+	 *
+	 * @return {@code true} if the model is ready
+	 */
+	private boolean awaitModel() {
+		CompletableFuture<Void> current = currentReady();
 		try {
-			File file = new File(path);
-			if (!file.exists()) {
-				throw new IllegalArgumentException("File does not exist: " + path);
+			if (execWaitTimeout < 0) {
+				current.get();
+			} else {
+				current.get(execWaitTimeout, TimeUnit.MILLISECONDS);
 			}
-			return new FileInputStream(file);
-		} catch (FileNotFoundException e) {
-			WordSenseDisambiguation.logger.warn(e.getMessage(), e.getCause());
+			return true;
+		} catch (TimeoutException e) {
+			WordSenseDisambiguation.logger.warn("Model is not ready after {} ms, skipping utterance", execWaitTimeout);
+		} catch (InterruptedException e) {
+			WordSenseDisambiguation.logger.warn("Interrupted while waiting for the model", e);
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Model could not be loaded", e.getCause());
 		}
-		return null;
+		return false;
+	}
+
+	private void initParallel(int threads) {
+		int poolSize = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+		AtomicInteger workerCount = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+			Thread thread = new Thread(runnable, WordSenseDisambiguation.ID + "-worker-" + workerCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		release.executor = executor;
+		WordSenseDisambiguation.logger.info("Disambiguating nouns in parallel with {} threads", poolSize);
 	}
 
 	private void prepareGraph() {
@@ -148,6 +419,9 @@ public class WordSenseDisambiguation extends AbstractAgent {
 	 */
 	@Override
 	protected void exec() {
+		if (!awaitModel()) {
+			return;
+		}
 		prepareGraph();
 		List<INode> nodes;
 		try {
@@ -155,292 +429,127 @@ public class WordSenseDisambiguation extends AbstractAgent {
 		} catch (MissingDataException e) {
 			return;
 		}
-		for (int i = 0; i < nodes.size(); i++) {
-			INode node = nodes.get(i);
-			String pos = node.getAttributeValue(WordSenseDisambiguation.POS_ATTRIBUTE).toString();
-			if (pos.startsWith("NN")) {
-				if (WordSenseDisambiguation.nodeIsNamedEntity(node)) {
-					continue;
-				}
-				// TODO maybe multi-thread here
-				Classification clazz = disambiguateNoun(nodes, i);
-				WordSenseDisambiguation.addClassificationToGraph(node, clazz);
-				if (WordSenseDisambiguation.logger.isDebugEnabled()) {
-					WordSenseDisambiguation.logger.debug(node.toString());
-				}
-
-				// check for compound noun
-				// TODO improve!
-				// prbly problem: Classifier is not trained on
-				// compound nouns, needs to be!
-				// TODO how to set compound word wsd
-				// if (i > 0) {
-				// INode prevNode = nodes.get(i - 1);
-				// String prevPos =
-				// prevNode.getAttributeValue(POS_ATTRIBUTE).toString();
-				// if (prevPos.startsWith("NN")) {
-				// Classification cnClazz = disambiguateCompoundNoun(nodes, i -
-				// 1, i);
-				// logger.debug(cnClazz.toString());
-				// }
-				// }
-			}
-		}
-	}
-
-	private static void addClassificationToGraph(INode node, Classification clazz) {
-		node.setAttributeValue(WordSenseDisambiguation.WSD_ATTRIBUTE_NAME, clazz.getClassificationString());
-	}
-
-	// TODO maybe speed this up!
-	private List<INode> getNodesInOrder() throws MissingDataException {
-		if (!(graph instanceof ParseGraph)) {
-			WordSenseDisambiguation.logger.error("Graph is no ParseGraph!");
-			throw new MissingDataException("Graph is no ParseGraph!");
-		}
-		ParseGraph parseGraph = (ParseGraph) graph;
-		String arcTypeName = "relation";
-		String arcTypeValue = "NEXT";
-		IArcType arcType = graph.getArcType(arcTypeName);
-
-		List<INode> orderedNodes = new ArrayList<>();
-		INode node = parseGraph.getFirstUtteranceNode();
-		if (node == null) {
-			return orderedNodes;
+		TokenTable tokens = TokenTable.of(nodes);
+		List<Integer> nounIndices = WordSenseDisambiguation.nounIndices(tokens);
+		// check for compound noun
+		// TODO improve!
+		// prbly problem: Classifier is not trained on
+		// compound nouns, needs to be!
+		// TODO how to set compound word wsd
+		// if (i > 0 && tokens.isNoun(i - 1)) {
+		// Disambiguation cnClazz =
+		// nounClassifier.disambiguateCompoundNoun(tokens, features, i - 1, i);
+		// logger.debug(cnClazz.toString());
+		// }
+
+		Disambiguation[] disambiguations;
+		try {
+			disambiguations = disambiguateNouns(tokens, nounIndices);
+		} catch (InterruptedException e) {
+			WordSenseDisambiguation.logger.warn("Interrupted while disambiguating nouns", e);
+			Thread.currentThread().interrupt();
+			return;
 		}
-
-		// TODO check if this always works
-		while (orderedNodes.add(node)) {
-			List<? extends IArc> arcs = node.getOutgoingArcsOfType(arcType);
-			if (node.getNumberOfOutgoingArcs() < 1) {
-				break;
-			}
-			for (IArc arc : arcs) {
-				Object value = arc.getAttributeValue("value");
-				if (value.equals(arcTypeValue)) {
-					node = arc.getTargetNode();
-					break;
-				}
+		// write back in utterance order on the calling thread
+		for (int n = 0; n < disambiguations.length; n++) {
+			INode node = nodes.get(nounIndices.get(n));
+			WordSenseDisambiguation.addDisambiguationToGraph(node, disambiguations[n]);
+			if (WordSenseDisambiguation.logger.isDebugEnabled()) {
+				WordSenseDisambiguation.logger.debug(node.toString());
 			}
 		}
-		return orderedNodes;
-	}
-
-	static boolean nodeIsNamedEntity(INode node) {
-		// use NER from parse
-		String nodeString = node.getAttributeValue(WordSenseDisambiguation.NER_ATTRIBUTE).toString();
-		String val = node.getAttributeValue("value").toString();
-		return (!nodeString.equals("O") || val.equalsIgnoreCase("armar") || val.equalsIgnoreCase("alexa"));
 	}
 
-	private Classification disambiguateNoun(List<INode> nodes, int index) {
-		return disambiguateCompoundNoun(nodes, index, index);
-	}
-
-	// does not actually disambiguate a compound noun properly...yet
-	private Classification disambiguateCompoundNoun(List<INode> nodes, int indexFirst, int indexSecond) {
-		INode firstNode = nodes.get(indexFirst);
-		Instance instance = createBaseClassificationInstance();
-		// fill instance ...
-		// ... with actual Word
-		String lemma = firstNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString().toLowerCase();
-		String pos = firstNode.getAttributeValue(WordSenseDisambiguation.POS_ATTRIBUTE).toString();
-		if (indexFirst != indexSecond) {
-			INode scndNode = nodes.get(indexSecond);
-			lemma += " " + scndNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString().toLowerCase();
-			pos = scndNode.getAttributeValue(WordSenseDisambiguation.POS_ATTRIBUTE).toString();
+	/**
+	 * @return the indices of the nouns to disambiguate, the nouns that are no
+	 *         named entities
+	 */
+	static List<Integer> nounIndices(TokenTable tokens) {
+		List<Integer> nounIndices = new ArrayList<>();
+		for (int i = 0; i < tokens.size(); i++) {
+			if (tokens.isNoun(i) && !tokens.isNamedEntity(i)) {
+				nounIndices.add(i);
+			}
 		}
-		instance.setValue(1, lemma);
-		instance.setValue(2, pos);
-		// ... with left and right three words
-		WordSenseDisambiguation.processLeftWords(nodes, indexFirst, instance);
-		WordSenseDisambiguation.processRightWords(nodes, indexSecond, instance);
-		// ... with left and right NN+VB
-		WordSenseDisambiguation.processLeftNounAndVerb(nodes, indexFirst, instance);
-		WordSenseDisambiguation.processRightNounAndVerb(nodes, indexSecond, instance);
-
-		// Store top-x disambiguation
-		storeTopXDisambiguation(instance, lemma, nodes, indexFirst);
-
-		// disambiguate
-		return classifierService.classifyInstanceWithLemma(instance, lemma);
-		// return classifierService.classifyInstance(instance);
+		return nounIndices;
 	}
 
 	/**
-	 * Stores the top-x classification to node
+	 * Disambiguates the given nouns of an utterance, in parallel if enabled.
 	 *
-	 * @author Dominik Fuchss
-	 * @param instance
-	 *            the instance
-	 * @param lemma
-	 *            the lemma
-	 * @param nodes
-	 *            all token nodes
-	 * @param idx
-	 *            the index of the current node
-	 * @see #storeTopX
+	 * @param tokens
+	 *            the token table of the utterance
+	 * @param nounIndices
+	 *            the indices of the nouns to disambiguate
+	 * @return the disambiguations in the order of the given indices
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the workers
 	 */
-	private void storeTopXDisambiguation(Instance instance, String lemma, List<INode> nodes, int idx) {
-		if (storeTopX <= 0) {
-			return;
+	Disambiguation[] disambiguateNouns(TokenTable tokens, List<Integer> nounIndices) throws InterruptedException {
+		// all nouns use one model version, even if a reload finishes meanwhile
+		ActiveModel current = currentModel();
+		ContextFeatures features = new ContextFeatures(tokens);
+		if ((current.workerNounClassifiers == null) || (nounIndices.size() < 2)) {
+			return current.nounClassifier.disambiguateNouns(tokens, features, nounIndices);
 		}
 
-		List<Classification> raw = classifierService.classifyInstanceWithLemma(instance, lemma, storeTopX);
-
-		List<Pair<String, Double>> cls = //
-				raw.stream().map(c -> new Pair<>(c.getClassificationString(), c.getProbability())).collect(Collectors.toList());
-
-		nodes.get(idx).setAttributeValue(WordSenseDisambiguation.WSD_TOP_X_ATTRIBUTE_NAME, cls);
-	}
-
-	private Instance createBaseClassificationInstance() {
-		Instances header = classifierService.getHeader().orElse(ClassifierService.getEmptyInstancesHeader());
-		Instance instance = new DenseInstance(header.numAttributes());
-		instance.setDataset(header);
-		instance.setWeight(2);
-		instance.attribute(1).setWeight(10d);
-		return instance;
-	}
-
-	private static void processLeftWords(List<INode> nodes, int index, Instance instance) {
-		int leftAdd = 0;
-		for (int i = 1; i <= 3; i++) {
-			// left
-			String leftLemma = WordSenseDisambiguation.NONE_VAL;
-			String leftPos = WordSenseDisambiguation.NONE_VAL;
-			int leftIndex = index - i;
-			if (leftIndex >= 0) {
-				INode leftNode = nodes.get(leftIndex);
-				leftLemma = leftNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString();
-				leftLemma = (leftLemma != null) ? leftLemma.toLowerCase() : WordSenseDisambiguation.NONE_VAL;
-				// when word is a word, that should be filtered, skip it!
-				while (Stopwords.isStopword(leftLemma) || ClassifierService.filterWords.contains(leftLemma)) {
-					leftAdd += 1;
-					if ((leftIndex - leftAdd) < 0) {
-						leftLemma = WordSenseDisambiguation.NONE_VAL;
-						break;
-					}
-					leftNode = nodes.get(leftIndex - leftAdd);
-					leftLemma = leftNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString();
-					leftLemma = (leftLemma != null) ? leftLemma.toLowerCase() : WordSenseDisambiguation.NONE_VAL;
-				}
-				leftPos = leftNode.getAttributeValue(WordSenseDisambiguation.POS_ATTRIBUTE).toString();
-			}
-			// word-3 is at index 3
-			// word-1 is at index 7
-			int attributeIndex = 9 - (2 * i);
-			if (!leftLemma.equals(WordSenseDisambiguation.NONE_VAL)) {
-				instance.setValue(attributeIndex, leftLemma);
-				instance.setValue(attributeIndex + 1, leftPos);
-			}
+		Disambiguation[] disambiguations = new Disambiguation[nounIndices.size()];
+		List<Future<Disambiguation>> futures = new ArrayList<>(nounIndices.size());
+		for (int index : nounIndices) {
+			futures.add(executor.submit(() -> current.workerNounClassifiers
+					.computeIfAbsent(Thread.currentThread(), worker -> newNounClassifier(current.model))
+					.disambiguateNoun(tokens, features, index)));
 		}
-	}
-
-	private static void processRightWords(List<INode> nodes, int index, Instance instance) {
-		int rightAdd = 0;
-		for (int i = 1; i <= 3; i++) {
-			// right
-			String rightLemma = WordSenseDisambiguation.NONE_VAL;
-			String rightPos = WordSenseDisambiguation.NONE_VAL;
-			int rightIndex = index + i;
-			if (rightIndex < nodes.size()) {
-				INode rightNode = nodes.get(rightIndex);
-				rightLemma = rightNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString();
-				rightLemma = (rightLemma != null) ? rightLemma.toLowerCase() : WordSenseDisambiguation.NONE_VAL;
-				while (Stopwords.isStopword(rightLemma) || ClassifierService.filterWords.contains(rightLemma)) {
-					rightAdd += 1;
-					// when word is a word, that should be filtered, skip it!
-					if ((rightIndex + rightAdd) >= nodes.size()) {
-						rightLemma = WordSenseDisambiguation.NONE_VAL;
-						break;
-					}
-					rightNode = nodes.get(rightIndex + rightAdd);
-					rightLemma = rightNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString();
-					rightLemma = (rightLemma != null) ? rightLemma.toLowerCase() : WordSenseDisambiguation.NONE_VAL;
-				}
-				rightPos = rightNode.getAttributeValue(WordSenseDisambiguation.POS_ATTRIBUTE).toString();
+		try {
+			for (int n = 0; n < disambiguations.length; n++) {
+				disambiguations[n] = futures.get(n).get();
 			}
-			// word+1 starts at 9
-			int attributeIndex = 7 + (2 * i);
-			if (!rightLemma.equals(WordSenseDisambiguation.NONE_VAL)) {
-				instance.setValue(attributeIndex, rightLemma);
-				instance.setValue(attributeIndex + 1, rightPos);
+		} catch (ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
 			}
-
+			throw new IllegalStateException(e.getCause());
 		}
+		return disambiguations;
+	}
 
+	private static void addDisambiguationToGraph(INode node, Disambiguation disambiguation) {
+		node.setAttributeValue(WordSenseDisambiguation.WSD_ATTRIBUTE_NAME, disambiguation.getSense());
+		// every node gets its own list, a cached disambiguation is shared by many nodes
+		disambiguation.getTopX()
+				.ifPresent(topX -> node.setAttributeValue(WordSenseDisambiguation.WSD_TOP_X_ATTRIBUTE_NAME, new ArrayList<>(topX)));
 	}
 
-	private static void processLeftNounAndVerb(List<INode> nodes, int index, Instance instance) {
-		String leftNN = WordSenseDisambiguation.NONE_VAL;
-		String leftVB = WordSenseDisambiguation.NONE_VAL;
-		for (int i = 1; i < nodes.size(); i++) {
-			int leftIndex = index - i;
-			if (leftIndex >= 0) {
-				INode leftNode = nodes.get(leftIndex);
-				String leftPOS = leftNode.getAttributeValue(WordSenseDisambiguation.POS_ATTRIBUTE).toString();
-				if (leftNN.equals(WordSenseDisambiguation.NONE_VAL) && leftPOS.startsWith("NN")) {
-					// we found left NN*
-					leftNN = leftNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString();
-					leftNN = (leftNN != null) ? leftNN.toLowerCase() : WordSenseDisambiguation.NONE_VAL;
-					if (ClassifierService.filterWords.contains(leftNN)) {
-						leftNN = WordSenseDisambiguation.NONE_VAL;
-					}
-				} else if (leftVB.equals(WordSenseDisambiguation.NONE_VAL) && leftPOS.startsWith("VB")) {
-					// we found left VB*
-					leftVB = leftNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString();
-					leftVB = (leftVB != null) ? leftVB.toLowerCase() : WordSenseDisambiguation.NONE_VAL;
-					if (ClassifierService.filterWords.contains(leftVB)) {
-						leftVB = WordSenseDisambiguation.NONE_VAL;
-					}
-				}
-			}
-			if (!leftNN.equals(WordSenseDisambiguation.NONE_VAL) && !leftVB.equals(WordSenseDisambiguation.NONE_VAL)) {
-				break;
-			}
+	private List<INode> getNodesInOrder() throws MissingDataException {
+		if (!(graph instanceof ParseGraph)) {
+			WordSenseDisambiguation.logger.error("Graph is no ParseGraph!");
+			throw new MissingDataException("Graph is no ParseGraph!");
 		}
-		WordSenseDisambiguation.addAttributeToInstance(instance, 15, leftNN);
-		WordSenseDisambiguation.addAttributeToInstance(instance, 16, leftVB);
+		return TokenOrder.nodesInOrder((ParseGraph) graph);
 	}
 
-	private static void processRightNounAndVerb(List<INode> nodes, int index, Instance instance) {
-		String rightNN = WordSenseDisambiguation.NONE_VAL;
-		String rightVB = WordSenseDisambiguation.NONE_VAL;
-		for (int i = 1; i < nodes.size(); i++) {
-			int rightIndex = index + i;
-			if (rightIndex < nodes.size()) {
-				INode rightNode = nodes.get(rightIndex);
-				String rightPOS = rightNode.getAttributeValue(WordSenseDisambiguation.POS_ATTRIBUTE).toString();
-				if (rightNN.equals(WordSenseDisambiguation.NONE_VAL) && rightPOS.startsWith("NN")) {
-					// we found right NN*
-					rightNN = rightNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString();
-					rightNN = (rightNN != null) ? rightNN.toLowerCase() : WordSenseDisambiguation.NONE_VAL;
-					if (ClassifierService.filterWords.contains(rightNN)) {
-						rightNN = WordSenseDisambiguation.NONE_VAL;
-					}
-				} else if (rightVB.equals(WordSenseDisambiguation.NONE_VAL) && rightPOS.startsWith("VB")) {
-					// we found right VB*
-					rightVB = rightNode.getAttributeValue(WordSenseDisambiguation.LEMMA_ATTRIBUTE).toString();
-					rightVB = (rightVB != null) ? rightVB.toLowerCase() : WordSenseDisambiguation.NONE_VAL;
-					if (ClassifierService.filterWords.contains(rightVB)) {
-						rightVB = WordSenseDisambiguation.NONE_VAL;
-					}
-				}
-			}
-
-			if (!rightNN.equals(WordSenseDisambiguation.NONE_VAL) && !rightVB.equals(WordSenseDisambiguation.NONE_VAL)) {
-				break;
-			}
-		}
-		WordSenseDisambiguation.addAttributeToInstance(instance, 17, rightNN);
-		WordSenseDisambiguation.addAttributeToInstance(instance, 18, rightVB);
+	static boolean nodeIsNamedEntity(INode node) {
+		// use NER from parse
+		String nodeString = node.getAttributeValue(WordSenseDisambiguation.NER_ATTRIBUTE).toString();
+		String val = node.getAttributeValue("value").toString();
+		return (!nodeString.equals("O") || val.equalsIgnoreCase("armar") || val.equalsIgnoreCase("alexa"));
 	}
 
-	private static void addAttributeToInstance(Instance instance, int attrIndex, String attrValue) {
-		if (!attrValue.equals(WordSenseDisambiguation.NONE_VAL)) {
-			instance.setValue(attrIndex, attrValue);
+	/**
+	 * Releases the model and stops the workers of the parallel mode. The agent
+	 * must not be executed afterwards. An agent that is not closed does this
+	 * once it is garbage collected.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		if (cleanable != null) {
+			cleanable.clean();
 		}
+		executor = null;
+		modelLease = null;
+		activeModel = null;
 	}
 
 	/*
@@ -450,22 +559,7 @@ public class WordSenseDisambiguation extends AbstractAgent {
 	 */
 	@Override
 	public String toString() {
-		return "WordSenseDisambiguation [classifierService=" + classifierService + "]";
-	}
-
-	private void load(InputStream classifierStream, InputStream filterStream, InputStream headerStream) {
-		Classifier classifier = SerializationHelper.deserializeEfficientNaiveBayesClassifier(classifierStream).orElseThrow();
-		Filter filter = SerializationHelper.deserializeFilter(filterStream).orElseThrow();
-		Instances header = SerializationHelper.deserializeInstances(headerStream).orElseThrow();
-
-		classifierService = new ClassifierService(classifier, filter, header);
-	}
-
-	private void loadWithNative(InputStream classifierStream, InputStream filterStream, InputStream headerStream) {
-		Classifier classifier = SerializationHelper.deserializeEfficientNaiveBayesClassifierNative(classifierStream).orElseThrow();
-		Filter filter = SerializationHelper.deserializeFilterNative(filterStream).orElseThrow();
-		Instances header = SerializationHelper.deserializeInstancesNative(headerStream).orElseThrow();
-
-		classifierService = new ClassifierService(classifier, filter, header);
+		ActiveModel current = activeModel;
+		return "WordSenseDisambiguation [classifierService=" + ((current == null) ? null : current.model) + "]";
 	}
 }
@@ -0,0 +1,95 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import edu.kit.ipd.pronat.wiki_wsd.classifier.ClassifierService;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+import weka.core.SerializedObject;
+import weka.filters.Filter;
+
+/**
+ * The loaded artifacts (classifier, filter and instances header) of a wiki WSD
+ * model.
+ * <p>
+ * The classifier is only read while scoring and therefore shared by all users
+ * of the model. The filter and the header are modified while an instance is
+ * processed (e.g. new string values), so every user (agent or worker thread)
+ * scores with its own {@link ClassifierService} created by
+ * {@link #newClassifierService()}. The copies are created from a snapshot
+ * taken at load time, as the loaded filter and header may be in use meanwhile.
+ */
+final class WsdModel {
+	private final Classifier classifier;
+	private final Filter filter;
+	private final Instances header;
+	private final ModelLoadStatistics loadStatistics;
+	private final SerializedObject filterSnapshot;
+	private final SerializedObject headerSnapshot;
+	private final AtomicBoolean artifactsTaken = new AtomicBoolean();
+	// guarded by this, built on first use
+	private SenseIndex senseIndex;
+
+	WsdModel(Classifier classifier, Filter filter, Instances header, ModelLoadStatistics loadStatistics) {
+		this.classifier = classifier;
+		this.filter = filter;
+		this.header = header;
+		this.loadStatistics = loadStatistics;
+		// before any service exists, so nobody modifies them while they are copied
+		try {
+			filterSnapshot = new SerializedObject(filter, true);
+			headerSnapshot = new SerializedObject(header, true);
+		} catch (Exception e) {
+			throw new IllegalStateException("Could not snapshot filter and instances header of the model", e);
+		}
+	}
+
+	/**
+	 * Creates a classifier service that shares the classifier with all other
+	 * services of this model. The first service works on the loaded filter and
+	 * header, every further one on its own copies of them.
+	 *
+	 * @return a new classifier service that can be used next to the others
+	 */
+	ClassifierService newClassifierService() {
+		if (artifactsTaken.compareAndSet(false, true)) {
+			return new ClassifierService(classifier, filter, header);
+		}
+		return copyClassifierService();
+	}
+
+	private ClassifierService copyClassifierService() {
+		Filter filterCopy = (Filter) filterSnapshot.getObject();
+		Instances headerCopy = (Instances) headerSnapshot.getObject();
+		if ((filterCopy == null) || (headerCopy == null)) {
+			throw new IllegalStateException("Could not copy filter and instances header of the model");
+		}
+		return new ClassifierService(classifier, filterCopy, headerCopy);
+	}
+
+	/**
+	 * @return what loading the model cost
+	 */
+	ModelLoadStatistics getLoadStatistics() {
+		return loadStatistics;
+	}
+
+	/**
+	 * Returns the candidate senses of the lemmas of the model, shared by all its
+	 * classifier services. The index is built on the first call, which therefore
+	 * should happen while the model is set up.
+	 *
+	 * @return the sense index of the model
+	 */
+	synchronized SenseIndex getSenseIndex() {
+		if (senseIndex == null) {
+			senseIndex = SenseIndex.build(copyClassifierService());
+		}
+		return senseIndex;
+	}
+
+	@Override
+	public String toString() {
+		return "WsdModel [classifier=" + classifier.getClass().getSimpleName() + ", filter=" + filter.getClass().getSimpleName() + "]";
+	}
+}
@@ -0,0 +1,39 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ArtifactCompressionTest {
+	private static final byte[] ARTIFACT = "go to the table and grab the green cup. ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		ArtifactCompression.compress(new ByteArrayInputStream(ArtifactCompressionTest.ARTIFACT), compressed);
+		Assert.assertTrue(compressed.size() < ArtifactCompressionTest.ARTIFACT.length);
+		try (InputStream in = ArtifactCompression.decompress(new ByteArrayInputStream(compressed.toByteArray()))) {
+			Assert.assertArrayEquals(ArtifactCompressionTest.ARTIFACT, in.readAllBytes());
+		}
+	}
+
+	@Test
+	public void testUncompressed() throws IOException {
+		try (InputStream in = ArtifactCompression.decompress(new ByteArrayInputStream(ArtifactCompressionTest.ARTIFACT))) {
+			Assert.assertArrayEquals(ArtifactCompressionTest.ARTIFACT, in.readAllBytes());
+		}
+		try (InputStream in = ArtifactCompression.decompress(new ByteArrayInputStream(new byte[] { 4, 34 }))) {
+			Assert.assertArrayEquals(new byte[] { 4, 34 }, in.readAllBytes());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testZstdIsRejected() throws IOException {
+		ArtifactCompression.decompress(new ByteArrayInputStream(new byte[] { 0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0 }));
+	}
+}
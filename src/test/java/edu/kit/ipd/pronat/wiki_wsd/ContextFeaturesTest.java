@@ -0,0 +1,247 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import edu.kit.ipd.pronat.wiki_wsd.classifier.ClassifierService;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Stopwords;
+
+/**
+ * Checks that the sweep-based {@link ContextFeatures} produce the same context
+ * attributes as the former per-noun scanning.
+ */
+public class ContextFeaturesTest {
+	private static final String NONE_VAL = "NONE";
+	private static final String[][] VOCABULARY = { { "the", "DT" }, { "a", "DT" }, { "to", "TO" }, { "it", "PRP" }, { "and", "CC" },
+			{ "go", "VB" }, { "grab", "VB" }, { "open", "VBP" }, { "put", "VBD" }, { "table", "NN" }, { "cup", "NNS" }, { "fridge", "NN" },
+			{ "armar", "NNP" }, { "green", "JJ" }, { "water", "NN" }, { "be", "VBZ" }, { "please", "UH" }, { "in", "IN" } };
+
+	private static Instances header;
+
+	@BeforeClass
+	public static void beforeClass() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i <= 18; i++) {
+			attributes.add(new Attribute("attr" + i, (List<String>) null));
+		}
+		ContextFeaturesTest.header = new Instances("context", attributes, 0);
+	}
+
+	@Test
+	public void testSimpleUtterance() {
+		String[] lemmas = { "armar", "go", "to", "the", "table", "and", "grab", "the", "cup" };
+		String[] pos = { "NNP", "VB", "TO", "DT", "NN", "CC", "VB", "DT", "NNS" };
+		assertSameFeatures(lemmas, pos);
+	}
+
+	@Test
+	public void testOnlyStopwords() {
+		String[] lemmas = { "the", "a", "to", "it", "and" };
+		String[] pos = { "DT", "DT", "TO", "PRP", "CC" };
+		assertSameFeatures(lemmas, pos);
+	}
+
+	@Test
+	public void testRandomUtterances() {
+		Random random = new Random(42);
+		for (int run = 0; run < 500; run++) {
+			int length = 1 + random.nextInt(60);
+			String[] lemmas = new String[length];
+			String[] pos = new String[length];
+			for (int i = 0; i < length; i++) {
+				String[] word = ContextFeaturesTest.VOCABULARY[random.nextInt(ContextFeaturesTest.VOCABULARY.length)];
+				lemmas[i] = word[0];
+				pos[i] = word[1];
+			}
+			assertSameFeatures(lemmas, pos);
+		}
+	}
+
+	/**
+	 * Micro-benchmark of the context features of long utterances against the
+	 * former per-noun scanning. Run manually.
+	 */
+	@Ignore("benchmark")
+	@Test
+	public void benchmarkLongUtterances() {
+		Random random = new Random(42);
+		int length = 2_000;
+		String[] lemmas = new String[length];
+		String[] pos = new String[length];
+		for (int i = 0; i < length; i++) {
+			String[] word = ContextFeaturesTest.VOCABULARY[random.nextInt(ContextFeaturesTest.VOCABULARY.length)];
+			lemmas[i] = word[0];
+			pos[i] = word[1];
+		}
+		Instance instance = ContextFeaturesTest.createInstance();
+		for (int run = 0; run < 10; run++) {
+			long start = System.nanoTime();
+			for (int index = 0; index < length; index++) {
+				ContextFeaturesTest.scanLeftWords(lemmas, pos, index, instance);
+				ContextFeaturesTest.scanRightWords(lemmas, pos, index, instance);
+				ContextFeaturesTest.scanNounAndVerb(lemmas, pos, index, -1, 15, instance);
+				ContextFeaturesTest.scanNounAndVerb(lemmas, pos, index, 1, 17, instance);
+			}
+			long scanning = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			TokenTable tokens = new TokenTable(lemmas, pos, new boolean[length]);
+			ContextFeatures features = new ContextFeatures(tokens);
+			ContextFeatures.ValueSink sink = ContextFeaturesTest.sink(instance, tokens);
+			for (int index = 0; index < length; index++) {
+				features.fillLeftWords(index, sink);
+				features.fillRightWords(index, sink);
+				features.fillLeftNounAndVerb(index, sink);
+				features.fillRightNounAndVerb(index, sink);
+			}
+			long sweeping = System.nanoTime() - start;
+			System.out.println("Run " + run + ": scanning " + (scanning / 1_000) + " us, sweeping " + (sweeping / 1_000) + " us");
+		}
+	}
+
+	private static void assertSameFeatures(String[] lemmas, String[] pos) {
+		TokenTable tokens = new TokenTable(lemmas, pos, new boolean[lemmas.length]);
+		ContextFeatures features = new ContextFeatures(tokens);
+		for (int index = 0; index < lemmas.length; index++) {
+			Instance expected = ContextFeaturesTest.createInstance();
+			ContextFeaturesTest.scanLeftWords(lemmas, pos, index, expected);
+			ContextFeaturesTest.scanRightWords(lemmas, pos, index, expected);
+			ContextFeaturesTest.scanNounAndVerb(lemmas, pos, index, -1, 15, expected);
+			ContextFeaturesTest.scanNounAndVerb(lemmas, pos, index, 1, 17, expected);
+
+			Instance actual = ContextFeaturesTest.createInstance();
+			ContextFeatures.ValueSink sink = ContextFeaturesTest.sink(actual, tokens);
+			features.fillLeftWords(index, sink);
+			features.fillRightWords(index, sink);
+			features.fillLeftNounAndVerb(index, sink);
+			features.fillRightNounAndVerb(index, sink);
+
+			for (int attr = 3; attr <= 18; attr++) {
+				String message = String.join(" ", lemmas) + " @" + index + " attribute " + attr;
+				Assert.assertEquals(message, expected.isMissing(attr), actual.isMissing(attr));
+				if (!expected.isMissing(attr)) {
+					Assert.assertEquals(message, expected.stringValue(attr), actual.stringValue(attr));
+				}
+			}
+		}
+	}
+
+	private static Instance createInstance() {
+		Instance instance = new DenseInstance(ContextFeaturesTest.header.numAttributes());
+		instance.setDataset(ContextFeaturesTest.header);
+		return instance;
+	}
+
+	/**
+	 * @return a sink that sets the lemmas and POS tags as strings
+	 */
+	static ContextFeatures.ValueSink sink(Instance instance, TokenTable tokens) {
+		return new ContextFeatures.ValueSink() {
+			@Override
+			public void setLemma(int attributeIndex, int tokenIndex) {
+				instance.setValue(attributeIndex, tokens.lemma(tokenIndex));
+			}
+
+			@Override
+			public void setPos(int attributeIndex, int tokenIndex) {
+				instance.setValue(attributeIndex, tokens.pos(tokenIndex));
+			}
+		};
+	}
+
+	private static boolean isFiltered(String lemma) {
+		return Stopwords.isStopword(lemma) || ClassifierService.filterWords.contains(lemma);
+	}
+
+	// the former per-noun scanning of WordSenseDisambiguation on plain arrays
+
+	private static void scanLeftWords(String[] lemmas, String[] pos, int index, Instance instance) {
+		int leftAdd = 0;
+		for (int i = 1; i <= 3; i++) {
+			String leftLemma = ContextFeaturesTest.NONE_VAL;
+			String leftPos = ContextFeaturesTest.NONE_VAL;
+			int leftIndex = index - i;
+			if (leftIndex >= 0) {
+				int current = leftIndex;
+				leftLemma = lemmas[current];
+				while (ContextFeaturesTest.isFiltered(leftLemma)) {
+					leftAdd += 1;
+					if ((leftIndex - leftAdd) < 0) {
+						leftLemma = ContextFeaturesTest.NONE_VAL;
+						break;
+					}
+					current = leftIndex - leftAdd;
+					leftLemma = lemmas[current];
+				}
+				leftPos = pos[current];
+			}
+			int attributeIndex = 9 - (2 * i);
+			if (!leftLemma.equals(ContextFeaturesTest.NONE_VAL)) {
+				instance.setValue(attributeIndex, leftLemma);
+				instance.setValue(attributeIndex + 1, leftPos);
+			}
+		}
+	}
+
+	private static void scanRightWords(String[] lemmas, String[] pos, int index, Instance instance) {
+		int rightAdd = 0;
+		for (int i = 1; i <= 3; i++) {
+			String rightLemma = ContextFeaturesTest.NONE_VAL;
+			String rightPos = ContextFeaturesTest.NONE_VAL;
+			int rightIndex = index + i;
+			if (rightIndex < lemmas.length) {
+				int current = rightIndex;
+				rightLemma = lemmas[current];
+				while (ContextFeaturesTest.isFiltered(rightLemma)) {
+					rightAdd += 1;
+					if ((rightIndex + rightAdd) >= lemmas.length) {
+						rightLemma = ContextFeaturesTest.NONE_VAL;
+						break;
+					}
+					current = rightIndex + rightAdd;
+					rightLemma = lemmas[current];
+				}
+				rightPos = pos[current];
+			}
+			int attributeIndex = 7 + (2 * i);
+			if (!rightLemma.equals(ContextFeaturesTest.NONE_VAL)) {
+				instance.setValue(attributeIndex, rightLemma);
+				instance.setValue(attributeIndex + 1, rightPos);
+			}
+		}
+	}
+
+	private static void scanNounAndVerb(String[] lemmas, String[] pos, int index, int direction, int attrIndex, Instance instance) {
+		String nn = ContextFeaturesTest.NONE_VAL;
+		String vb = ContextFeaturesTest.NONE_VAL;
+		for (int i = 1; i < lemmas.length; i++) {
+			int current = index + (direction * i);
+			if ((current >= 0) && (current < lemmas.length)) {
+				if (nn.equals(ContextFeaturesTest.NONE_VAL) && pos[current].startsWith("NN")) {
+					nn = ClassifierService.filterWords.contains(lemmas[current]) ? ContextFeaturesTest.NONE_VAL : lemmas[current];
+				} else if (vb.equals(ContextFeaturesTest.NONE_VAL) && pos[current].startsWith("VB")) {
+					vb = ClassifierService.filterWords.contains(lemmas[current]) ? ContextFeaturesTest.NONE_VAL : lemmas[current];
+				}
+			}
+			if (!nn.equals(ContextFeaturesTest.NONE_VAL) && !vb.equals(ContextFeaturesTest.NONE_VAL)) {
+				break;
+			}
+		}
+		if (!nn.equals(ContextFeaturesTest.NONE_VAL)) {
+			instance.setValue(attrIndex, nn);
+		}
+		if (!vb.equals(ContextFeaturesTest.NONE_VAL)) {
+			instance.setValue(attrIndex + 1, vb);
+		}
+	}
+}
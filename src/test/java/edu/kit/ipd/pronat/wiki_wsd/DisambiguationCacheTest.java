@@ -0,0 +1,108 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DisambiguationCacheTest {
+
+	@Test
+	public void testHitsAndMisses() {
+		DisambiguationCache cache = new DisambiguationCache(10);
+		Disambiguation cup = new Disambiguation("cup (mug)", null);
+		Assert.assertNull(cache.get(42));
+		cache.put(42, cup);
+		Assert.assertSame(cup, cache.get(42));
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getMisses());
+
+		cache.clear();
+		Assert.assertNull(cache.get(42));
+		Assert.assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testBounded() {
+		DisambiguationCache cache = new DisambiguationCache(100);
+		for (long key = 0; key < 10_000; key++) {
+			cache.put(key, new Disambiguation("sense", null));
+			Assert.assertTrue(cache.size() <= 100);
+		}
+	}
+
+	@Test
+	public void testKeepsRecentlyUsed() {
+		DisambiguationCache cache = new DisambiguationCache(100);
+		Disambiguation table = new Disambiguation("table", null);
+		cache.put(-1, table);
+		for (long key = 0; key < 10_000; key++) {
+			cache.put(key, new Disambiguation("sense", null));
+			// a frequent noun always gets a second chance
+			Assert.assertSame(table, cache.get(-1));
+		}
+		Assert.assertNull(cache.get(0));
+		Assert.assertNotNull(cache.get(9_999));
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException, ExecutionException {
+		DisambiguationCache cache = new DisambiguationCache(64);
+		Disambiguation[] senses = new Disambiguation[256];
+		for (int key = 0; key < senses.length; key++) {
+			senses[key] = new Disambiguation("sense " + key, null);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int worker = 0; worker < 4; worker++) {
+				long seed = worker;
+				futures.add(executor.submit(() -> {
+					Random random = new Random(seed);
+					for (int i = 0; i < 100_000; i++) {
+						int key = random.nextInt(senses.length);
+						Disambiguation cached = cache.get(key);
+						if (cached == null) {
+							cache.put(key, senses[key]);
+						} else {
+							// never the disambiguation of another fingerprint
+							Assert.assertSame(senses[key], cached);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		Assert.assertTrue(cache.size() <= 64);
+		Assert.assertEquals(400_000, cache.getHits() + cache.getMisses());
+		Assert.assertTrue(cache.getHits() > 0);
+	}
+
+	@Test
+	public void testFingerprint() {
+		TokenTable first = new TokenTable(new String[] { "grab", "the", "green", "cup" }, new String[] { "VB", "DT", "JJ", "NN" },
+				new boolean[4]);
+		TokenTable second = new TokenTable(new String[] { "take", "the", "green", "cup" }, new String[] { "VB", "DT", "JJ", "NN" },
+				new boolean[4]);
+		TokenTable other = new TokenTable(new String[] { "grab", "the", "red", "cup" }, new String[] { "VB", "DT", "JJ", "NN" },
+				new boolean[4]);
+		FeatureFingerprint fingerprint = new FeatureFingerprint();
+		long firstKey = fingerprint.of(first, new ContextFeatures(first), 3, 3);
+		long otherKey = fingerprint.of(other, new ContextFeatures(other), 3, 3);
+		Assert.assertNotEquals(firstKey, otherKey);
+		// the same fingerprinter gives the same key for the same table again
+		Assert.assertEquals(firstKey, fingerprint.of(first, new ContextFeatures(first), 3, 3));
+		// another verb left of cup, so the context differs
+		Assert.assertNotEquals(firstKey, fingerprint.of(second, new ContextFeatures(second), 3, 3));
+	}
+}
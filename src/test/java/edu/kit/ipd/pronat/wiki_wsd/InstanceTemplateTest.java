@@ -0,0 +1,184 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.kit.ipd.pronat.wiki_wsd.classifier.Classification;
+import edu.kit.ipd.pronat.wiki_wsd.classifier.ClassifierService;
+import weka.classifiers.rules.ZeroR;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.AllFilter;
+
+public class InstanceTemplateTest {
+	private static final String[] LEMMAS = { "armar", "go", "to", "the", "table", "and", "grab", "the", "green", "cup" };
+	private static final String[] POS = { "NNP", "VB", "TO", "DT", "NN", "CC", "VB", "DT", "JJ", "NNS" };
+
+	private static Instances header;
+
+	@BeforeClass
+	public static void beforeClass() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 0; i <= 18; i++) {
+			attributes.add(new Attribute("attr" + i, (List<String>) null));
+		}
+		InstanceTemplateTest.header = new Instances("template", attributes, 0);
+	}
+
+	@Test
+	public void testSameValuesAsInstance() {
+		TokenTable tokens = InstanceTemplateTest.tokens();
+		ContextFeatures features = new ContextFeatures(tokens);
+		InstanceTemplate template = new InstanceTemplate(InstanceTemplateTest.header, 2);
+		for (int index = 0; index < InstanceTemplateTest.LEMMAS.length; index++) {
+			template.reset();
+			InstanceTemplateTest.fill(template, tokens, features, index);
+			Instance actual = template.instance();
+
+			Instance expected = new DenseInstance(InstanceTemplateTest.header.numAttributes());
+			expected.setDataset(InstanceTemplateTest.header);
+			expected.setWeight(2);
+			InstanceTemplateTest.fill(ContextFeaturesTest.sink(expected, tokens), tokens, features, index);
+
+			Assert.assertEquals(expected.weight(), actual.weight(), 0);
+			for (int attr = 0; attr < InstanceTemplateTest.header.numAttributes(); attr++) {
+				Assert.assertEquals("attribute " + attr, expected.isMissing(attr), actual.isMissing(attr));
+				if (!expected.isMissing(attr)) {
+					Assert.assertEquals("attribute " + attr, expected.stringValue(attr), actual.stringValue(attr));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testUnknownNominalValueIsMissing() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("class"));
+		attributes.add(new Attribute("lemma", List.of("table", "cup")));
+		Instances nominalHeader = new Instances("nominal", attributes, 0);
+		InstanceTemplate template = new InstanceTemplate(nominalHeader, 2);
+
+		template.setValue(1, "cup");
+		Assert.assertEquals(1, template.instance().value(1), 0);
+		template.setValue(1, "fridge");
+		Assert.assertTrue(template.instance().isMissing(1));
+	}
+
+	@Test
+	public void testSteadyStateAllocation() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+		TokenTable tokens = InstanceTemplateTest.tokens();
+		ContextFeatures features = new ContextFeatures(tokens);
+		InstanceTemplate template = new InstanceTemplate(InstanceTemplateTest.header, 2);
+		// warm up, so all string values are known and the code is compiled
+		double checksum = InstanceTemplateTest.disambiguate(template, tokens, features, 20_000);
+
+		long threadId = Thread.currentThread().getId();
+		int nouns = 100_000;
+		long before = threads.getThreadAllocatedBytes(threadId);
+		checksum += InstanceTemplateTest.disambiguate(template, tokens, features, nouns);
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		Assert.assertFalse(Double.isNaN(checksum));
+		// at most the thin instance view per noun, no value array copies
+		Assert.assertTrue("Allocated " + (allocated / nouns) + " bytes per noun", (allocated / nouns) < 64);
+	}
+
+	/**
+	 * Through the noun classifier with a classifier service that allocates
+	 * nothing, once with every noun classified and once with every noun found
+	 * in the result cache.
+	 */
+	@Test
+	public void testSteadyStateAllocationOfNounClassifier() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+		TokenTable tokens = InstanceTemplateTest.tokens();
+		ContextFeatures features = new ContextFeatures(tokens);
+		NounClassifier classified = new NounClassifier(new ConstantClassifierService(), 0);
+		DisambiguationCache cache = new DisambiguationCache(100);
+		NounClassifier cached = new NounClassifier(new ConstantClassifierService(), 0, cache, null, null);
+		// warm up, so all string values are known, the cache is filled and the code is compiled
+		InstanceTemplateTest.disambiguate(classified, tokens, features, 20_000);
+		InstanceTemplateTest.disambiguate(cached, tokens, features, 20_000);
+
+		long threadId = Thread.currentThread().getId();
+		int nouns = 100_000;
+		long before = threads.getThreadAllocatedBytes(threadId);
+		int checksum = InstanceTemplateTest.disambiguate(classified, tokens, features, nouns);
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+		// the thin instance view and the disambiguation per noun
+		Assert.assertTrue("Allocated " + (allocated / nouns) + " bytes per classified noun", (allocated / nouns) < 96);
+
+		long hits = cache.getHits();
+		before = threads.getThreadAllocatedBytes(threadId);
+		checksum += InstanceTemplateTest.disambiguate(cached, tokens, features, nouns);
+		allocated = threads.getThreadAllocatedBytes(threadId) - before;
+		Assert.assertTrue(checksum > 0);
+		Assert.assertEquals(nouns, cache.getHits() - hits);
+		// no boxed fingerprints and no cache entries for hits
+		Assert.assertTrue("Allocated " + (allocated / nouns) + " bytes per cached noun", (allocated / nouns) < 8);
+	}
+
+	private static final class ConstantClassifierService extends ClassifierService {
+		private final Classification classification = new Classification("table (furniture)", 1d);
+
+		private ConstantClassifierService() {
+			super(new ZeroR(), new AllFilter(), StubModelLoader.header());
+		}
+
+		@Override
+		public Classification classifyInstanceWithLemma(Instance instance, String lemma) {
+			return classification;
+		}
+	}
+
+	private static int disambiguate(NounClassifier classifier, TokenTable tokens, ContextFeatures features, int nouns) {
+		int checksum = 0;
+		for (int n = 0; n < nouns; n++) {
+			// every token of the utterance as a noun
+			checksum += classifier.disambiguateNoun(tokens, features, n % InstanceTemplateTest.LEMMAS.length).getSense().length();
+		}
+		return checksum;
+	}
+
+	private static double disambiguate(InstanceTemplate template, TokenTable tokens, ContextFeatures features, int nouns) {
+		double checksum = 0;
+		for (int n = 0; n < nouns; n++) {
+			int index = n % InstanceTemplateTest.LEMMAS.length;
+			template.reset();
+			InstanceTemplateTest.fill(template, tokens, features, index);
+			checksum += template.instance().value(1);
+		}
+		return checksum;
+	}
+
+	private static TokenTable tokens() {
+		return new TokenTable(InstanceTemplateTest.LEMMAS, InstanceTemplateTest.POS, new boolean[InstanceTemplateTest.LEMMAS.length]);
+	}
+
+	private static void fill(ContextFeatures.ValueSink sink, TokenTable tokens, ContextFeatures features, int index) {
+		if (sink instanceof InstanceTemplate) {
+			((InstanceTemplate) sink).encode(tokens);
+		}
+		sink.setLemma(1, index);
+		sink.setPos(2, index);
+		features.fillLeftWords(index, sink);
+		features.fillRightWords(index, sink);
+		features.fillLeftNounAndVerb(index, sink);
+		features.fillRightNounAndVerb(index, sink);
+	}
+}
@@ -0,0 +1,35 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ModelLoaderTest {
+
+	@Test
+	public void testForName() {
+		Assert.assertTrue(ModelLoader.forName(ModelLoader.DEFAULT_NAME) instanceof EfficientModelLoader);
+		Assert.assertTrue(ModelLoader.forName("native") instanceof NativeModelLoader);
+	}
+
+	@Test
+	public void testBuiltInWithoutServices() {
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		// like a plugin whose services the context class loader does not see
+		thread.setContextClassLoader(new URLClassLoader(new URL[0], null));
+		try {
+			Assert.assertTrue(ModelLoader.forName(ModelLoader.DEFAULT_NAME) instanceof EfficientModelLoader);
+			Assert.assertTrue(ModelLoader.forName(NativeModelLoader.NAME) instanceof NativeModelLoader);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownLoader() {
+		ModelLoader.forName("unknown");
+	}
+}
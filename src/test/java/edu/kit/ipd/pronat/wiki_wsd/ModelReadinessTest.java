@@ -0,0 +1,87 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.kit.ipd.pronat.wiki_wsd.WordSenseDisambiguation.ModelState;
+
+public class ModelReadinessTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Properties props;
+	private CountDownLatch load;
+	private WordSenseDisambiguation agent;
+
+	@Before
+	public void before() throws IOException {
+		StubModelLoader.reset();
+		load = StubModelLoader.holdNextLoad();
+		props = StubModelLoader.configuration(folder.newFolder().toPath());
+		props.setProperty("INIT_ASYNC", "true");
+		props.setProperty("EXEC_WAIT_TIMEOUT", "50");
+		agent = new WordSenseDisambiguation();
+	}
+
+	@After
+	public void after() {
+		load.countDown();
+		agent.close();
+	}
+
+	@Test
+	public void testLoadingToReady() throws InterruptedException, ExecutionException, TimeoutException {
+		agent.init(props);
+		Assert.assertEquals(ModelState.LOADING, agent.getModelState());
+		Assert.assertFalse(agent.getReadyFuture().isDone());
+		Assert.assertEquals(0, agent.getModelVersion());
+		// skips the utterance after the timeout, before it touches the graph
+		agent.exec();
+
+		load.countDown();
+		agent.getReadyFuture().get(10, TimeUnit.SECONDS);
+		Assert.assertEquals(ModelState.READY, agent.getModelState());
+		Assert.assertEquals(1, agent.getModelVersion());
+	}
+
+	@Test
+	public void testLoadingToFailed() throws InterruptedException, TimeoutException {
+		StubModelLoader.failure = new IllegalArgumentException("Could not deserialize classifier");
+		agent.init(props);
+		Assert.assertEquals(ModelState.LOADING, agent.getModelState());
+
+		load.countDown();
+		try {
+			agent.getReadyFuture().get(10, TimeUnit.SECONDS);
+			Assert.fail("Model must not be ready");
+		} catch (ExecutionException e) {
+			Assert.assertSame(StubModelLoader.failure, e.getCause());
+		}
+		Assert.assertEquals(ModelState.FAILED, agent.getModelState());
+		Assert.assertEquals(0, agent.getModelVersion());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testExecAfterFailedLoad() throws InterruptedException, TimeoutException {
+		StubModelLoader.failure = new IllegalArgumentException("Could not deserialize classifier");
+		load.countDown();
+		agent.init(props);
+		try {
+			agent.getReadyFuture().get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			// expected
+		}
+		agent.exec();
+	}
+}
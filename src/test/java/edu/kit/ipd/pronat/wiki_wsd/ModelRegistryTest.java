@@ -0,0 +1,145 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.kit.ipd.pronat.wiki_wsd.WordSenseDisambiguation.ModelState;
+
+public class ModelRegistryTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Properties props;
+	private ModelSource source;
+
+	@Before
+	public void before() throws IOException {
+		StubModelLoader.reset();
+		props = StubModelLoader.configuration(folder.newFolder().toPath());
+		source = ModelSource.fromConfiguration(props);
+	}
+
+	@Test
+	public void testSharedModel() {
+		int models = ModelRegistry.size();
+		int loads = StubModelLoader.loads.get();
+		ModelRegistry.Lease first = ModelRegistry.acquire(source, false);
+		ModelRegistry.Lease second = ModelRegistry.acquire(ModelSource.fromConfiguration(props), false);
+		Assert.assertSame(first.getModel().getModel(), second.getModel().getModel());
+		Assert.assertEquals(1, first.getModel().getVersion());
+		Assert.assertEquals(loads + 1, StubModelLoader.loads.get());
+		Assert.assertEquals(models + 1, ModelRegistry.size());
+
+		first.close();
+		Assert.assertEquals(models + 1, ModelRegistry.size());
+		second.close();
+		Assert.assertEquals(models, ModelRegistry.size());
+		// closing twice releases only once
+		second.close();
+		Assert.assertEquals(models, ModelRegistry.size());
+	}
+
+	@Test
+	public void testClosedAgentReleasesModel() {
+		int models = ModelRegistry.size();
+		WordSenseDisambiguation first = new WordSenseDisambiguation();
+		first.init(props);
+		WordSenseDisambiguation second = new WordSenseDisambiguation();
+		second.init(props);
+		Assert.assertEquals(models + 1, ModelRegistry.size());
+		first.close();
+		second.close();
+		Assert.assertEquals(models, ModelRegistry.size());
+	}
+
+	@Test
+	public void testUnreachableAgentReleasesModel() throws InterruptedException {
+		int models = ModelRegistry.size();
+		new WordSenseDisambiguation().init(props);
+		Assert.assertEquals(models + 1, ModelRegistry.size());
+		// the agent is never closed, as in a Luna pipeline
+		for (int i = 0; (i < 100) && (ModelRegistry.size() > models); i++) {
+			System.gc();
+			Thread.sleep(20);
+		}
+		Assert.assertEquals(models, ModelRegistry.size());
+	}
+
+	@Test
+	public void testReloadBumpsVersion() throws IOException, InterruptedException {
+		try (ModelRegistry.Lease watching = ModelRegistry.acquire(source, false);
+				ModelRegistry.Lease pinned = ModelRegistry.acquire(source, false)) {
+			watching.watch(50);
+			WsdModel initial = watching.getModel().getModel();
+			Assert.assertEquals(-1, watching.getLastReloadMillis());
+
+			changeClassifier();
+			ModelRegistryTest.await(() -> watching.getLoadedModel().getVersion() == 2);
+			Assert.assertNotSame(initial, watching.getLoadedModel().getModel());
+			Assert.assertTrue(watching.getLastReloadMillis() >= 0);
+			// a lease that does not watch keeps its model
+			Assert.assertEquals(1, pinned.getLoadedModel().getVersion());
+			Assert.assertSame(initial, pinned.getLoadedModel().getModel());
+		}
+	}
+
+	@Test
+	public void testReloadDuringInitialLoad() throws IOException, InterruptedException {
+		CountDownLatch initialLoad = StubModelLoader.holdNextLoad();
+		try (ModelRegistry.Lease lease = ModelRegistry.acquire(source, true)) {
+			CompletableFuture<ModelRegistry.VersionedModel> initial = lease.getModelFuture();
+			lease.watch(50);
+			changeClassifier();
+			ModelRegistryTest.await(() -> (lease.getLoadedModel() != null) && (lease.getLoadedModel().getVersion() == 2));
+
+			// the initial load finishes later, with an older version
+			initialLoad.countDown();
+			Assert.assertEquals(1, initial.join().getVersion());
+			Assert.assertEquals(2, lease.getLoadedModel().getVersion());
+		} finally {
+			initialLoad.countDown();
+		}
+	}
+
+	@Test
+	public void testAgentRecoversByReload() throws IOException, InterruptedException {
+		StubModelLoader.failure = new IllegalArgumentException("Could not deserialize classifier");
+		props.setProperty("INIT_ASYNC", "true");
+		props.setProperty("HOT_RELOAD", "true");
+		props.setProperty("HOT_RELOAD_DELAY", "50");
+		WordSenseDisambiguation agent = new WordSenseDisambiguation();
+		try {
+			agent.init(props);
+			ModelRegistryTest.await(() -> agent.getModelState() == ModelState.FAILED);
+
+			StubModelLoader.failure = null;
+			changeClassifier();
+			ModelRegistryTest.await(() -> agent.getModelState() == ModelState.READY);
+			Assert.assertEquals(2, agent.getModelVersion());
+		} finally {
+			agent.close();
+		}
+	}
+
+	private void changeClassifier() throws IOException {
+		Files.write(Paths.get(props.getProperty(ModelArtifact.CLASSIFIER.getConfigKey())), new byte[] { 1 });
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		for (int i = 0; (i < 200) && !condition.getAsBoolean(); i++) {
+			Thread.sleep(50);
+		}
+		Assert.assertTrue(condition.getAsBoolean());
+	}
+}
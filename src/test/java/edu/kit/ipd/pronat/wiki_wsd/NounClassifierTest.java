@@ -0,0 +1,108 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.kit.ipd.parse.luna.data.MissingDataException;
+import edu.kit.ipd.parse.luna.graph.INode;
+import edu.kit.ipd.parse.luna.graph.ParseGraph;
+import edu.kit.ipd.parse.luna.pipeline.PipelineStageException;
+import edu.kit.ipd.pronat.graph_builder.GraphBuilder;
+import edu.kit.ipd.pronat.ner.NERTagger;
+import edu.kit.ipd.pronat.prepipedatamodel.PrePipelineData;
+import edu.kit.ipd.pronat.prepipedatamodel.tools.StringToHypothesis;
+import edu.kit.ipd.pronat.shallow_nlp.ShallowNLP;
+import edu.kit.ipd.pronat.wiki_wsd.util.TestHelper;
+import edu.kit.ipd.pronat.wiki_wsd.util.Text;
+
+public class NounClassifierTest {
+	private static WsdModel model;
+	private static ShallowNLP snlp;
+	private static NERTagger ner;
+	private static GraphBuilder graphBuilder;
+
+	@BeforeClass
+	public static void beforeClass() {
+		NounClassifierTest.model = ModelSource.fromConfiguration(new Properties()).load();
+		NounClassifierTest.snlp = new ShallowNLP();
+		NounClassifierTest.snlp.init();
+		NounClassifierTest.ner = new NERTagger();
+		NounClassifierTest.ner.init();
+		NounClassifierTest.graphBuilder = new GraphBuilder();
+		NounClassifierTest.graphBuilder.init();
+	}
+
+	/**
+	 * The best sense taken from the top-x classification must be the sense of
+	 * the single best classification, for every noun of the corpus.
+	 */
+	@Test
+	public void testTopXKeepsBestSense() throws PipelineStageException, MissingDataException {
+		NounClassifier best = new NounClassifier(NounClassifierTest.model.newClassifierService(), 0);
+		NounClassifier topX = new NounClassifier(NounClassifierTest.model.newClassifierService(), 3);
+		NounClassifierTest.assertSameSenses(best, topX);
+	}
+
+	/**
+	 * Assigning the single candidate sense of a lemma without classification
+	 * must give the sense the classifier gives, for every noun of the corpus.
+	 */
+	@Test
+	public void testFastPathKeepsSenses() throws PipelineStageException, MissingDataException {
+		NounClassifier full = new NounClassifier(NounClassifierTest.model.newClassifierService(), 0);
+		FastPath fastPath = new FastPath(null);
+		NounClassifier fast = new NounClassifier(NounClassifierTest.model.newClassifierService(), 0, null, fastPath,
+				NounClassifierTest.model.getSenseIndex());
+		NounClassifierTest.assertSameSenses(full, fast);
+		Assert.assertTrue(fastPath.getShortCircuited() > 0);
+	}
+
+	/**
+	 * The classifier service lists only the candidates of a known lemma and no
+	 * sense at all for an unknown one, which the fast path relies on.
+	 */
+	@Test
+	public void testCandidatesOfLemma() {
+		SenseIndex index = new SenseIndex();
+		NounClassifier classifier = new NounClassifier(NounClassifierTest.model.newClassifierService(), 0, null, new FastPath("Unknown"),
+				index);
+		TokenTable tokens = new TokenTable(new String[] { "grab", "the", "blorpfish", "from", "the", "table" },
+				new String[] { "VB", "DT", "NN", "IN", "DT", "NN" }, new boolean[6]);
+		ContextFeatures features = new ContextFeatures(tokens);
+
+		Assert.assertEquals("Unknown", classifier.disambiguateNoun(tokens, features, 2).getSense());
+		Assert.assertEquals(0, index.candidateCount("blorpfish"));
+		Assert.assertNotEquals("Unknown", classifier.disambiguateNoun(tokens, features, 5).getSense());
+		int senseCount = NounClassifierTest.model.newClassifierService().getHeader().get().classAttribute().numValues();
+		Assert.assertTrue(index.candidateCount("table") > 0);
+		Assert.assertTrue(index.candidateCount("table") < senseCount);
+	}
+
+	private static void assertSameSenses(NounClassifier expected, NounClassifier actual) throws PipelineStageException, MissingDataException {
+		int nouns = 0;
+		for (Map.Entry<String, Text> text : TestHelper.texts.entrySet()) {
+			PrePipelineData ppd = new PrePipelineData();
+			ppd.setMainHypothesis(StringToHypothesis.stringToMainHypothesis(text.getValue().getText().replace("\n", " ")));
+			NounClassifierTest.snlp.exec(ppd);
+			NounClassifierTest.ner.exec(ppd);
+			NounClassifierTest.graphBuilder.exec(ppd);
+
+			List<INode> nodes = TokenOrder.nodesInOrder((ParseGraph) ppd.getGraph());
+			TokenTable tokens = TokenTable.of(nodes);
+			ContextFeatures features = new ContextFeatures(tokens);
+			for (int i = 0; i < tokens.size(); i++) {
+				if (tokens.isNoun(i) && !tokens.isNamedEntity(i)) {
+					Assert.assertEquals(text.getKey() + ", " + tokens.lemma(i), expected.disambiguateNoun(tokens, features, i).getSense(),
+							actual.disambiguateNoun(tokens, features, i).getSense());
+					nouns++;
+				}
+			}
+		}
+		Assert.assertTrue(nouns > 0);
+	}
+}
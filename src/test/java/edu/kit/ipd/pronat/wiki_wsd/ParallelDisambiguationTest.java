@@ -0,0 +1,114 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.kit.ipd.pronat.wiki_wsd.classifier.Classification;
+import edu.kit.ipd.pronat.wiki_wsd.classifier.ClassifierService;
+import weka.classifiers.rules.ZeroR;
+import weka.core.Instance;
+import weka.filters.AllFilter;
+
+public class ParallelDisambiguationTest {
+	private static final String[][] SENTENCE = { { "take", "VB" }, { "the", "DT" }, { "cup", "NN" }, { "from", "IN" }, { "the", "DT" },
+			{ "table", "NN" }, { "and", "CC" }, { "put", "VB" }, { "it", "PRP" }, { "into", "IN" }, { "the", "DT" }, { "dishwasher", "NN" } };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private WordSenseDisambiguation sequential;
+	private WordSenseDisambiguation parallel;
+
+	/**
+	 * Classifies an instance to its lemma and context, so every noun gets a
+	 * sense of its own and a noun classified with the features of another noun
+	 * gets a wrong sense.
+	 */
+	private static final class ContextClassifierService extends ClassifierService {
+
+		private ContextClassifierService() {
+			super(new ZeroR(), new AllFilter(), StubModelLoader.header());
+		}
+
+		@Override
+		public Classification classifyInstanceWithLemma(Instance instance, String lemma) {
+			StringBuilder sense = new StringBuilder(lemma);
+			for (int i = 1; i < instance.numAttributes(); i++) {
+				sense.append('|').append(instance.isMissing(i) ? "?" : instance.stringValue(i));
+			}
+			return new Classification(sense.toString(), 1d);
+		}
+
+		@Override
+		public List<Classification> classifyInstanceWithLemma(Instance instance, String lemma, int topX) {
+			return List.of(classifyInstanceWithLemma(instance, lemma));
+		}
+	}
+
+	private static final class ContextAgent extends WordSenseDisambiguation {
+		@Override
+		ClassifierService newClassifierService(WsdModel model) {
+			return new ContextClassifierService();
+		}
+	}
+
+	@Before
+	public void before() throws IOException {
+		StubModelLoader.reset();
+		Properties props = StubModelLoader.configuration(folder.newFolder().toPath());
+		props.setProperty("RESULT_CACHE_SIZE", "0");
+		sequential = new ContextAgent();
+		sequential.init(props);
+		props.setProperty("PARALLEL", "true");
+		props.setProperty("PARALLEL_THREADS", "4");
+		parallel = new ContextAgent();
+		parallel.init(props);
+	}
+
+	@After
+	public void after() {
+		sequential.close();
+		parallel.close();
+	}
+
+	@Test
+	public void testParallelKeepsSenses() throws InterruptedException {
+		int repetitions = 50;
+		int length = ParallelDisambiguationTest.SENTENCE.length * repetitions;
+		String[] lemmas = new String[length];
+		String[] pos = new String[length];
+		for (int i = 0; i < length; i++) {
+			String[] token = ParallelDisambiguationTest.SENTENCE[i % ParallelDisambiguationTest.SENTENCE.length];
+			// vary the context between the repetitions
+			lemmas[i] = token[1].equals("DT") ? token[0] + (i / ParallelDisambiguationTest.SENTENCE.length) : token[0];
+			pos[i] = token[1];
+		}
+		TokenTable tokens = new TokenTable(lemmas, pos, new boolean[length]);
+		List<Integer> nounIndices = WordSenseDisambiguation.nounIndices(tokens);
+		Assert.assertEquals(3 * repetitions, nounIndices.size());
+
+		for (int run = 0; run < 5; run++) {
+			List<String> expected = ParallelDisambiguationTest.senses(sequential.disambiguateNouns(tokens, nounIndices));
+			List<String> actual = ParallelDisambiguationTest.senses(parallel.disambiguateNouns(tokens, nounIndices));
+			Assert.assertEquals(expected, actual);
+			Assert.assertEquals(nounIndices.size(), expected.stream().distinct().count());
+		}
+	}
+
+	private static List<String> senses(Disambiguation[] disambiguations) {
+		List<String> senses = new ArrayList<>();
+		for (Disambiguation disambiguation : disambiguations) {
+			senses.add(disambiguation.getSense());
+		}
+		return senses;
+	}
+}
@@ -0,0 +1,50 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SenseIndexTest {
+
+	private static SenseIndex index() {
+		SenseIndex index = new SenseIndex();
+		index.record("cap", List.of("lid (container)", "cap (hat)"));
+		index.record("fridge", List.of("refrigerator"));
+		index.record("blorp", List.of());
+		return index;
+	}
+
+	@Test
+	public void testCandidates() {
+		SenseIndex index = SenseIndexTest.index();
+		Assert.assertEquals(2, index.candidateCount("cap"));
+		Assert.assertNull(index.singleSense("cap"));
+		Assert.assertEquals("refrigerator", index.singleSense("fridge"));
+		Assert.assertEquals(0, index.candidateCount("blorp"));
+		Assert.assertEquals(-1, index.candidateCount("table"));
+		Assert.assertFalse(index.isKnown("table"));
+	}
+
+	@Test
+	public void testFastPath() {
+		SenseIndex index = SenseIndexTest.index();
+		FastPath fastPath = new FastPath("Unknown");
+		Disambiguation fridge = fastPath.resolve(index, "fridge");
+		Assert.assertEquals("refrigerator", fridge.getSense());
+		Assert.assertFalse(fridge.getTopX().isPresent());
+		Disambiguation blorp = fastPath.resolve(index, "blorp");
+		Assert.assertEquals("Unknown", blorp.getSense());
+		Assert.assertFalse(blorp.getTopX().isPresent());
+		// ambiguous or not recorded yet, classify
+		Assert.assertNull(fastPath.resolve(index, "cap"));
+		Assert.assertNull(fastPath.resolve(index, "table"));
+		Assert.assertEquals(4, fastPath.getNouns());
+		Assert.assertEquals(2, fastPath.getShortCircuited());
+
+		Assert.assertEquals("Unknown", fastPath.outOfVocabulary().getSense());
+
+		Assert.assertNull(new FastPath(null).resolve(index, "blorp"));
+		Assert.assertNull(new FastPath(null).outOfVocabulary());
+	}
+}
@@ -0,0 +1,136 @@
+package edu.kit.ipd.pronat.wiki_wsd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.kohsuke.MetaInfServices;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.rules.ZeroR;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.filters.AllFilter;
+import weka.filters.Filter;
+
+/**
+ * Loads a tiny model instead of the real one, whatever the artifact files
+ * contain, so the model handling can be tested without the real model. Loads
+ * can be held back or made to fail. Tests configure it before loading.
+ */
+@MetaInfServices(ModelLoader.class)
+public final class StubModelLoader implements ModelLoader {
+	static final String NAME = "stub";
+
+	/**
+	 * Number of loaded classifiers, i.e. of model loads.
+	 */
+	static final AtomicInteger loads = new AtomicInteger();
+	/**
+	 * The next load waits until this opens, {@code null} to load at once.
+	 */
+	private static final AtomicReference<CountDownLatch> gate = new AtomicReference<>();
+	/**
+	 * Loads fail with this exception, {@code null} to succeed.
+	 */
+	static volatile RuntimeException failure;
+
+	/**
+	 * Resets the loader to loading at once and successfully.
+	 */
+	static void reset() {
+		StubModelLoader.gate.set(null);
+		StubModelLoader.failure = null;
+	}
+
+	/**
+	 * Holds back the next load, but not the ones after it.
+	 *
+	 * @return the latch to count down to let the load continue
+	 */
+	static CountDownLatch holdNextLoad() {
+		CountDownLatch latch = new CountDownLatch(1);
+		StubModelLoader.gate.set(latch);
+		return latch;
+	}
+
+	/**
+	 * Creates empty artifact files and a configuration loading them with this
+	 * loader.
+	 *
+	 * @param directory
+	 *            the directory of the artifact files, one model per directory
+	 * @return the configuration
+	 */
+	static Properties configuration(Path directory) {
+		Properties props = new Properties();
+		try {
+			for (ModelArtifact artifact : ModelArtifact.values()) {
+				Path file = Files.createFile(directory.resolve(artifact.name().toLowerCase()));
+				props.setProperty(artifact.getConfigKey(), file.toString());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		props.setProperty(ModelLoader.CONFIG_KEY, StubModelLoader.NAME);
+		return props;
+	}
+
+	/**
+	 * @return a header with a nominal class (the senses) at index 0 and string
+	 *         attributes for the lemma, the POS tag and the 16 context
+	 *         attributes
+	 */
+	static Instances header() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("sense", List.of("table (furniture)", "table (data)", "cup (mug)", "cup (trophy)")));
+		for (int i = 1; i <= 18; i++) {
+			attributes.add(new Attribute("attr" + i, (List<String>) null));
+		}
+		Instances header = new Instances("stub", attributes, 0);
+		header.setClassIndex(0);
+		return header;
+	}
+
+	@Override
+	public String getName() {
+		return StubModelLoader.NAME;
+	}
+
+	@Override
+	public Classifier loadClassifier(InputStream in) {
+		CountDownLatch wait = StubModelLoader.gate.getAndSet(null);
+		if (wait != null) {
+			try {
+				wait.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+		RuntimeException fail = StubModelLoader.failure;
+		if (fail != null) {
+			throw fail;
+		}
+		StubModelLoader.loads.incrementAndGet();
+		return new ZeroR();
+	}
+
+	@Override
+	public Filter loadFilter(InputStream in) {
+		return new AllFilter();
+	}
+
+	@Override
+	public Instances loadHeader(InputStream in) {
+		return StubModelLoader.header();
+	}
+}